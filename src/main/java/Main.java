@@ -1,11 +1,88 @@
 import models.Bot;
-import org.telegram.telegrambots.meta.TelegramBotsApi;
+import models.Log;
+import models.Metrics;
+import models.MetricsServer;
+import models.UpdatePoller;
+import models.WebhookServer;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
 
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+// Режим приема обновлений задается переменными окружения:
+// BOT_MODE=polling (по умолчанию) с параметрами POLL_LIMIT (размер пачки getUpdates, 100),
+// POLL_TIMEOUT (ожидание long polling в секундах, 50) и POLL_BATCH_WAIT (сколько секунд ждать
+// обработки пачки перед следующим запросом, 10)
+// или BOT_MODE=webhook с параметрами WEBHOOK_SECRET (обязателен), WEBHOOK_PORT (8080), WEBHOOK_PATH (/telegram)
+// и WEBHOOK_URL — внешний адрес для регистрации в Telegram (без него сервер только слушает локально).
+// BOT_THREADS — число потоков для асинхронной отправки запросов к Telegram (1),
+// METRICS_PORT — порт метрик Prometheus на localhost (9404, 0 — не запускать),
+// LOG_LEVEL — уровень журнала (DEBUG, INFO, WARN, ERROR; по умолчанию INFO)
 public class Main {
     public static void main(String[] args) throws Exception {
-        TelegramBotsApi telegramBotsApi = new TelegramBotsApi(DefaultBotSession.class);
-        Bot bot = new Bot();
-        telegramBotsApi.registerBot(bot);
+        Runtime.getRuntime().addShutdownHook(new Thread(Log::flush, "log-flush"));
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setMaxThreads(Integer.parseInt(env("BOT_THREADS", "1")));
+        options.setGetUpdatesLimit(Integer.parseInt(env("POLL_LIMIT", "100")));
+        options.setGetUpdatesTimeout(Integer.parseInt(env("POLL_TIMEOUT", "50")));
+        Bot bot = new Bot(options).start();
+        startMetrics();
+
+        if ("webhook".equalsIgnoreCase(env("BOT_MODE", "polling"))) {
+            startWebhook(bot);
+        } else {
+            startLongPolling(bot, options);
+        }
+    }
+
+    // Сессия long polling с чтением пачками от последнего обработанного обновления
+    private static void startLongPolling(Bot bot, DefaultBotOptions options) throws Exception {
+        bot.onRegister();
+        bot.clearWebhook();
+
+        Duration batchWait = Duration.ofSeconds(Long.parseLong(env("POLL_BATCH_WAIT", "10")));
+        DefaultBotSession session = new DefaultBotSession();
+        session.setToken(bot.getBotToken());
+        session.setOptions(options);
+        session.setCallback(bot);
+        session.setUpdatesSupplier(new UpdatePoller(bot, bot.getUpdateOffsets(),
+                options.getGetUpdatesLimit(), options.getGetUpdatesTimeout(), batchWait));
+        session.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(session::stop, "polling-shutdown"));
+    }
+
+    private static void startMetrics() throws Exception {
+        int port = Integer.parseInt(env("METRICS_PORT", "9404"));
+        if (port > 0) {
+            MetricsServer server = new MetricsServer(port, Metrics.global());
+            server.start();
+            Runtime.getRuntime().addShutdownHook(new Thread(server::close, "metrics-shutdown"));
+        }
+    }
+
+    private static void startWebhook(Bot bot) throws Exception {
+        String path = env("WEBHOOK_PATH", "/telegram");
+        String secret = env("WEBHOOK_SECRET", null);
+        int port = Integer.parseInt(env("WEBHOOK_PORT", "8080"));
+
+        WebhookServer server = new WebhookServer(new InetSocketAddress(port), path, secret, bot::onUpdateReceived);
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "webhook-shutdown"));
+
+        String publicUrl = env("WEBHOOK_URL", null);
+        if (publicUrl != null) {
+            bot.execute(SetWebhook.builder()
+                    .url(publicUrl + path)
+                    .secretToken(secret)
+                    .build());
+            Log.info("Webhook зарегистрирован", "url", publicUrl + path);
+        }
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isBlank() ? value : defaultValue;
     }
 }
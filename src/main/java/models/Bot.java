@@ -1,19 +1,26 @@
 package models;
 
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.GetFile;
 import org.telegram.telegrambots.meta.api.methods.send.SendDocument;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Document;
 import org.telegram.telegrambots.meta.api.objects.InputFile;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
 import java.sql.*;
 import java.time.Duration;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
 import java.util.concurrent.*;
@@ -21,26 +28,122 @@ import java.util.concurrent.*;
 public class Bot extends TelegramLongPollingBot {
 
     // Поля класса
-    private Connection connection;
-    private Map<String, String> userStates = new HashMap<>(); // Состояния пользователей
-    private Map<Long, Map<String, String>> tempDataMap = new HashMap<>(); // Временные данные пользователей
-    private ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(10); // Планировщик задач
-    private Map<String, ScheduledFuture<?>> meetingTasks = new HashMap<>(); // Задачи встреч
-    private Map<Long, Integer> lastMessageIdMap = new HashMap<>(); // ID последних сообщений для редактирования
+    private final ConnectionPool connectionPool; // Пул соединений с БД
+    private final ClientRepository clientRepository;
+    private final DealRepository dealRepository;
+    private final ClientExporter clientExporter;
+    private final ClientImporter clientImporter;
+    private final StatsCounters stats; // Счетчики статистики (сверка с БД раз в 15 минут)
+    private final SessionStore sessions = new SessionStore(10_000, Duration.ofHours(12), Duration.ofMinutes(5)).start(); // Состояния диалогов по ID чата (брошенные удаляются через 12 часов)
+    private TimingWheel scheduler = new TimingWheel(Duration.ofMinutes(1), 4096, Executors.newFixedThreadPool(4)); // Планировщик уведомлений (шаг — минута)
+    private final MeetingTaskRegistry meetingTasks = new MeetingTaskRegistry(scheduler); // Задачи уведомлений по звонкам
+    private final SendQueue sendQueue; // Очередь исходящих сообщений с учетом лимитов Telegram
+    private UpdateDispatcher dispatcher; // Очереди обновлений по чатам (создаются в start())
+    private final UpdateOffsets updateOffsets; // Последнее обработанное обновление
+    private InlineSearch inlineSearch; // Ответы на инлайн-запросы (@бот запрос) из индекса поиска (создается в start())
+    private CallbackRouter callbackRouter; // Обработчики кнопок по коду действия (создаются в start())
 
     private DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
-    // Основной метод обработки обновлений
+    private static final Duration MISSED_REMINDERS_WINDOW = Duration.ofDays(1); // За какой период досылать пропущенные звонки
+    private static final int UPCOMING_PAGE_SIZE = 5; // Звонков на странице списка ближайших звонков
+    private static final int SEARCH_RESULTS = 8; // Кнопок с найденными клиентами
+    private static final Duration INLINE_DEBOUNCE = Duration.ofMillis(300); // Пауза ввода перед ответом на инлайн-запрос
+    private static final long MAX_IMPORT_FILE_SIZE = 20L * 1024 * 1024; // Больше Telegram не дает ботам скачивать
+
+    // Время обработки текстового ввода по состоянию диалога
+    private static final Metrics.Histogram[] STATE_TIMINGS = new Metrics.Histogram[ChatState.values().length];
+
+    static {
+        Metrics.Family<Metrics.Histogram> family = Metrics.global()
+                .histogram("bot_message_duration_seconds", "Обработка текстового сообщения по состоянию диалога", "state");
+        for (ChatState state : ChatState.values()) {
+            STATE_TIMINGS[state.ordinal()] = family.labels(state.name());
+        }
+    }
+
+    public Bot() {
+        this(new DefaultBotOptions());
+    }
+
+    public Bot(DefaultBotOptions options) {
+        this(options, new ConnectionPool(
+                "jdbc:mysql://localhost:3306/investment_tg_bot?useServerPrepStmts=true&useCursorFetch=true",
+                "root",
+                "010203456456",
+                10
+        ), new SendQueue().start());
+    }
+
+    // Бот с заданной БД и очередью отправки (бенчмарки подставляют встроенную БД и очередь без отправки)
+    Bot(DefaultBotOptions options, ConnectionPool connectionPool, SendQueue sendQueue) {
+        super(options);
+        this.connectionPool = connectionPool;
+        this.clientRepository = new ClientRepository(connectionPool);
+        this.dealRepository = new DealRepository(connectionPool);
+        this.clientExporter = new ClientExporter(connectionPool);
+        this.clientImporter = new ClientImporter(clientRepository);
+        this.stats = new StatsCounters(connectionPool, 15).start();
+        this.sendQueue = sendQueue;
+        this.updateOffsets = new UpdateOffsets(new BotStateRepository(connectionPool));
+    }
+
+    // Подготовка бота после создания (до регистрации в Telegram): обработчики обновлений и кнопок,
+    // таблицы БД, метрики, загрузка счетчиков, индексов и уведомлений
+    public Bot start() {
+        dispatcher = new UpdateDispatcher(this::processUpdate);
+        callbackRouter = createCallbackRouter();
+        inlineSearch = new InlineSearch(clientRepository,
+                (userId, answer, current) -> sendQueue.submitGlobal(userId, SendQueue.Priority.INTERACTIVE,
+                        () -> current.getAsBoolean() ? execute(answer) : null),
+                INLINE_DEBOUNCE);
+
+        initializeDatabase();
+        registerMetrics();
+        loadStatistics();
+        loadClientIndexes();
+        loadUpdateOffset();
+        restoreReminders();
+        return this;
+    }
+
+    // Основной метод обработки обновлений: передаем обновление в очередь его чата
     @Override
     public void onUpdateReceived(Update update) {
+        enqueue(update);
+    }
+
+    // Поставить обновление в очередь его чата; результат завершается после обработки
+    CompletableFuture<Void> enqueue(Update update) {
+        return dispatcher.dispatch(update);
+    }
+
+    // Пачка обновлений из getUpdates: передаем целиком и отмечаем ее номер после обработки
+    @Override
+    public void onUpdatesReceived(List<Update> updates) {
+        updateOffsets.track(updates, dispatcher.dispatchAll(updates));
+    }
+
+    // Номер последнего обработанного обновления (для продолжения long polling после перезапуска)
+    public UpdateOffsets getUpdateOffsets() {
+        return updateOffsets;
+    }
+
+    // Обработка одного обновления (вызывается последовательно в рамках чата)
+    void processUpdate(Update update) {
         try {
             if (update.hasMessage() && update.getMessage().hasText()) {
                 handleMessage(update);
+            } else if (update.hasMessage() && update.getMessage().hasDocument()) {
+                handleDocument(update);
             } else if (update.hasCallbackQuery()) {
                 handleCallbackQuery(update);
+            } else if (update.hasInlineQuery()) {
+                Log.route("inline");
+                inlineSearch.onQuery(update.getInlineQuery());
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка обработки обновления", e);
         }
     }
 
@@ -48,147 +151,187 @@ public class Bot extends TelegramLongPollingBot {
     private void handleMessage(Update update) {
         String text = update.getMessage().getText();
         Long chatId = update.getMessage().getChatId();
-        String chatIdStr = chatId.toString();
-
-        String state = userStates.get(chatIdStr);
 
         // Обработка команд меню
         if (text.equals("/start")) {
+            Log.route(text);
             showWelcomeScreen(chatId);
             return;
         } else if (text.equals("/menu")) {
+            Log.route(text);
             showMainMenu(chatId);
             return;
         }
 
+        Session session = sessions.get(chatId);
+        ChatState state = session != null ? session.getState() : null;
+
         // Обработка состояний пользователя
-        if (state != null) {
-            switch (state) {
-                case "ожидание имени":
-                    handleNameInput(chatId, text);
-                    break;
-
-                case "ожидание телефона":
-                    handlePhoneInput(chatId, text);
-                    break;
-
-                case "ожидание города":
-                    handleCityInput(chatId, text);
-                    break;
-
-                case "ожидание даты звонка":
-                    handleCallDateInput(chatId, text);
-                    break;
-
-                case "поиск клиента для звонка":
-                    searchClientForMeeting(chatId, text);
-                    return;
+        if (state == null) {
+            showMainMenu(chatId);
+            return;
+        }
 
-                case "изменение телефона":
-                    searchClientForEdit(chatId, text);
-                    return;
+        Log.route(state.name());
+        long start = System.nanoTime();
+        try {
+            handleStateInput(session, state, text);
+        } finally {
+            STATE_TIMINGS[state.ordinal()].observeSince(start);
+        }
+    }
 
-                case "удаление телефона":
-                    searchClientForDelete(chatId, text);
-                    return;
+    // Текстовый ввод в зависимости от состояния диалога
+    private void handleStateInput(Session session, ChatState state, String text) {
+        Long chatId = session.getChatId();
+        switch (state) {
+            case AWAITING_NAME -> handleNameInput(session, text);
+            case AWAITING_PHONE -> handlePhoneInput(session, text);
+            case AWAITING_CITY -> handleCityInput(session, text);
+            case AWAITING_MEETING_TIME -> handleCallDateInput(session, text);
+            case SEARCH_FOR_MEETING -> searchClientForMeeting(chatId, text);
+            case SEARCH_FOR_EDIT -> searchClientForEdit(chatId, text);
+            case SEARCH_FOR_DELETE -> searchClientForDelete(chatId, text);
+            case EDIT_NAME, EDIT_PHONE, EDIT_CITY -> handleTextParameterChange(session, text);
+            case POSTPONE_DAYS -> handlePostponeInput(session, text, "Введите число дней:");
+            case POSTPONE_HOURS -> handlePostponeInput(session, text, "Введите число часов:");
+            case POSTPONE_MINUTES -> handlePostponeInput(session, text, "Введите число минут:");
+            case RESCHEDULE_MEETING -> handleRescheduleInput(session, text);
+            case AWAITING_IMPORT_FILE -> editMessage(chatId, "Отправьте файл CSV с клиентами (скрепка → Файл):");
+        }
+    }
 
-                case "изменение имени":
-                case "изменение телефона ввод":
-                case "изменение города":
-                    handleTextParameterChange(chatId, text);
-                    break;
-
-                case "отложить дни":
-                    try {
-                        int days = Integer.parseInt(text);
-                        String meetingKey = userStates.get(chatIdStr + "_postpone");
-                        postponeMeeting(chatId, meetingKey, days, 0, 0);
-                        userStates.remove(chatIdStr);
-                        userStates.remove(chatIdStr + "_postpone");
-                    } catch (NumberFormatException e) {
-                        editMessage(chatId, "Введите число дней:");
-                    }
-                    break;
-
-                case "отложить часы":
-                    try {
-                        int hours = Integer.parseInt(text);
-                        String meetingKey = userStates.get(chatIdStr + "_postpone");
-                        postponeMeeting(chatId, meetingKey, 0, hours, 0);
-                        userStates.remove(chatIdStr);
-                        userStates.remove(chatIdStr + "_postpone");
-                    } catch (NumberFormatException e) {
-                        editMessage(chatId, "Введите число часов:");
-                    }
-                    break;
-
-                case "отложить минуты":
-                    try {
-                        int minutes = Integer.parseInt(text);
-                        String meetingKey = userStates.get(chatIdStr + "_postpone");
-                        postponeMeeting(chatId, meetingKey, 0, 0, minutes);
-                        userStates.remove(chatIdStr);
-                        userStates.remove(chatIdStr + "_postpone");
-                    } catch (NumberFormatException e) {
-                        editMessage(chatId, "Введите число минут:");
-                    }
-                    break;
-
-                case "звонок дата":
-                    try {
-                        int clientIdForMeeting = Integer.parseInt(userStates.get(chatIdStr + "_meeting_client"));
-                        LocalDateTime newTime = LocalDateTime.parse(text + ":00", DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
-                        if (newTime.isBefore(LocalDateTime.now())) {
-                            editMessage(chatId, "Дата звонка не может быть в прошлом! Введите новую дату и время (формат: ГГГГ-ММ-ДД ЧЧ:ММ):");
-                        } else {
-                            updateMeetingTime(chatId, clientIdForMeeting, text);
-                            userStates.remove(chatIdStr);
-                            userStates.remove(chatIdStr + "_meeting_client");
-                        }
-                    } catch (Exception e) {
-                        editMessage(chatId, "Неверный формат даты! Используйте формат: ГГГГ-ММ-ДД ЧЧ:ММ");
-                    }
-                    break;
-
-                default:
-                    showMainMenu(chatId);
-                    return;
-            }
-        } else {
-            showMainMenu(chatId);
+    // Файл от пользователя: если чат ждет файл для импорта — загрузка клиентов из CSV
+    private void handleDocument(Update update) {
+        Long chatId = update.getMessage().getChatId();
+        Document document = update.getMessage().getDocument();
+        Session session = sessions.get(chatId);
+        Log.route("import");
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        if (session == null || session.getState() != ChatState.AWAITING_IMPORT_FILE) {
+            message.setText("Чтобы загрузить клиентов из файла, выберите «📥 Загрузить клиентов из CSV» в меню работы с клиентами.");
+            message.setReplyMarkup(getBackToMenuKeyboard());
+            send(message);
+            return;
+        }
+        String fileName = document.getFileName() != null ? document.getFileName() : "";
+        if (!fileName.toLowerCase(Locale.ROOT).endsWith(".csv")) {
+            message.setText("❌ Нужен файл в формате CSV (.csv). Отправьте другой файл:");
+            send(message);
             return;
         }
+        if (document.getFileSize() != null && document.getFileSize() > MAX_IMPORT_FILE_SIZE) {
+            message.setText("❌ Файл больше 20 МБ, Telegram не дает ботам скачивать такие файлы. Разделите его на части и отправьте первую:");
+            send(message);
+            return;
+        }
+
+        session.reset();
+        importClients(chatId, document.getFileId());
+    }
+
+    // Скачать файл и импортировать клиентов; итог — одним сообщением
+    private void importClients(Long chatId, String fileId) {
+        ClientImporter.Report report;
+        try (InputStream in = downloadFileAsStream(execute(new GetFile(fileId)))) {
+            report = clientImporter.importCsv(in, chatId);
+        } catch (TelegramApiException | IOException e) {
+            Log.error("Ошибка загрузки файла импорта", e);
+            SendMessage message = new SendMessage();
+            message.setChatId(chatId.toString());
+            message.setText("❌ Не удалось скачать файл. Попробуйте отправить его еще раз.");
+            message.setReplyMarkup(getBackToMenuKeyboard());
+            send(message);
+            return;
+        }
+
+        stats.clientsAdded(report.imported());
+        report.meetings().forEach(this::scheduleReminder);
+        Log.info("Импорт клиентов завершен", "imported", report.imported(), "duplicates", report.duplicates(),
+                "invalid", report.invalid(), "meetings", report.meetings().size(), "interrupted", report.interrupted());
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(importReportText(report));
+        message.setReplyMarkup(getBackToMenuKeyboard());
+        send(message);
+    }
+
+    private static String importReportText(ClientImporter.Report report) {
+        StringBuilder text = new StringBuilder("📥 ИМПОРТ КЛИЕНТОВ\n\n")
+                .append("✅ Добавлено: ").append(report.imported()).append('\n')
+                .append("📅 С назначенным звонком: ").append(report.meetings().size()).append('\n')
+                .append("🔁 Дубликаты: ").append(report.duplicates()).append('\n')
+                .append("❌ Ошибки: ").append(report.invalid()).append('\n');
+        if (report.interrupted()) {
+            text.append("\n⚠️ Импорт остановлен из-за ошибки чтения файла или БД. Добавленные клиенты сохранены, " +
+                    "при повторной загрузке того же файла они будут пропущены как дубликаты.\n");
+        }
+        if (!report.problems().isEmpty()) {
+            text.append('\n');
+            for (String problem : report.problems()) {
+                text.append(problem).append('\n');
+            }
+            int more = report.skipped() - report.problems().size();
+            if (more > 0) {
+                text.append("… и еще ").append(more).append('\n');
+            }
+        }
+        return text.toString();
+    }
+
+    // Обработка ввода количества дней, часов или минут для переноса звонка
+    private void handlePostponeInput(Session session, String text, String retryPrompt) {
+        Long chatId = session.getChatId();
+        try {
+            int amount = Integer.parseInt(text);
+            int clientId = session.getPostponeClientId();
+            switch (session.getState()) {
+                case POSTPONE_DAYS -> postponeMeeting(chatId, clientId, amount, 0, 0);
+                case POSTPONE_HOURS -> postponeMeeting(chatId, clientId, 0, amount, 0);
+                default -> postponeMeeting(chatId, clientId, 0, 0, amount);
+            }
+            session.reset();
+        } catch (NumberFormatException e) {
+            editMessage(chatId, retryPrompt);
+        }
+    }
+
+    // Обработка ввода нового времени звонка существующему клиенту
+    private void handleRescheduleInput(Session session, String text) {
+        Long chatId = session.getChatId();
+        try {
+            LocalDateTime newTime = LocalDateTime.parse(text + ":00", DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            if (newTime.isBefore(LocalDateTime.now())) {
+                editMessage(chatId, "Дата звонка не может быть в прошлом! Введите новую дату и время (формат: ГГГГ-ММ-ДД ЧЧ:ММ):");
+            } else {
+                updateMeetingTime(chatId, session.getMeetingClientId(), text);
+                session.reset();
+            }
+        } catch (Exception e) {
+            editMessage(chatId, "Неверный формат даты! Используйте формат: ГГГГ-ММ-ДД ЧЧ:ММ");
+        }
     }
 
     // Обработка ввода имени
-    private void handleNameInput(Long chatId, String name) {
-        String chatIdStr = chatId.toString();
-        Map<String, String> clientData = new HashMap<>();
-        clientData.put("name", name);
-        tempDataMap.put(chatId, clientData);
+    private void handleNameInput(Session session, String name) {
+        Long chatId = session.getChatId();
+        session.startDraft(name);
 
         editMessage(chatId,
                 "👤 Имя клиента: " + name + "\n\n" +
                         "📱 Введите номер телефона клиента (формат: 81234567890):");
-        userStates.put(chatIdStr, "ожидание телефона");
+        session.setState(ChatState.AWAITING_PHONE);
     }
 
     // Проверка, занят ли номер телефона
     private boolean isPhoneNumberTaken(String phone) {
-        initializeDatabase();
-
-        String sql = "SELECT COUNT(*) as count FROM clients WHERE phone = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt("count") > 0;
-            }
+        try {
+            return clientRepository.isPhoneTaken(phone);
         } catch (SQLException e) {
-            System.out.println("Ошибка при проверке номера телефона: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Ошибка при проверке номера телефона", e);
         }
 
         return false;
@@ -196,29 +339,18 @@ public class Bot extends TelegramLongPollingBot {
 
     // Проверка, занят ли номер телефона другим клиентом (кроме указанного)
     private boolean isPhoneNumberTaken(String phone, int excludeClientId) {
-        initializeDatabase();
-
-        String sql = "SELECT COUNT(*) as count FROM clients WHERE phone = ? AND id != ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            pstmt.setInt(2, excludeClientId);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                return rs.getInt("count") > 0;
-            }
+        try {
+            return clientRepository.isPhoneTaken(phone, excludeClientId);
         } catch (SQLException e) {
-            System.out.println("Ошибка при проверке номера телефона: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Ошибка при проверке номера телефона", e);
         }
 
         return false;
     }
 
     // Обработка ввода телефона с валидацией
-    private void handlePhoneInput(Long chatId, String phone) {
-        String chatIdStr = chatId.toString();
+    private void handlePhoneInput(Session session, String phone) {
+        Long chatId = session.getChatId();
 
         // Валидация телефона
         if (!phone.matches("^8\\d{10}$")) {
@@ -240,43 +372,52 @@ public class Bot extends TelegramLongPollingBot {
             return;
         }
 
-        tempDataMap.get(chatId).put("phone", phone);
+        session.setDraftPhone(phone);
         editMessage(chatId,
-                "👤 Имя клиента: " + tempDataMap.get(chatId).get("name") + "\n" +
+                "👤 Имя клиента: " + session.getDraftName() + "\n" +
                         "📱 Телефон: " + phone + "\n\n" +
                         "🏙️ Введите город для поиска недвижимости:");
-        userStates.put(chatIdStr, "ожидание города");
+        session.setState(ChatState.AWAITING_CITY);
     }
 
     // Обработка ввода города
-    private void handleCityInput(Long chatId, String city) {
-        String chatIdStr = chatId.toString();
-        tempDataMap.get(chatId).put("city", city);
+    private void handleCityInput(Session session, String city) {
+        Long chatId = session.getChatId();
+        session.setDraftCity(city);
 
         editMessage(chatId,
-                "👤 Имя клиента: " + tempDataMap.get(chatId).get("name") + "\n" +
-                        "📱 Телефон: " + tempDataMap.get(chatId).get("phone") + "\n" +
+                "👤 Имя клиента: " + session.getDraftName() + "\n" +
+                        "📱 Телефон: " + session.getDraftPhone() + "\n" +
                         "🏙️ Город: " + city + "\n\n" +
                         "Выберите тип недвижимости:");
         showPropertyTypeSelection(chatId, "create");
     }
 
     // Обработка ввода даты звонка
-    private void handleCallDateInput(Long chatId, String dateTime) {
-        String chatIdStr = chatId.toString();
+    private void handleCallDateInput(Session session, String dateTime) {
+        Long chatId = session.getChatId();
         try {
             LocalDateTime meetingTime = LocalDateTime.parse(dateTime + ":00", DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
             if (meetingTime.isBefore(LocalDateTime.now())) {
                 editMessage(chatId, "Дата звонка не может быть в прошлом! Введите дату и время звонка (формат: ГГГГ-ММ-ДД ЧЧ:ММ):");
             } else {
-                Map<String, String> data = tempDataMap.get(chatId);
-                String name = data.get("name");
-                String phone = data.get("phone");
-                String city = data.get("city");
-                String propertyType = data.get("type");
+                String name = session.getDraftName();
+                String phone = session.getDraftPhone();
+                String city = session.getDraftCity();
+                String propertyType = session.getDraftPropertyType();
 
-                saveClientToDatabase(name, phone, city, propertyType, dateTime);
-                scheduleMeetingNotifications(chatId, name, phone, dateTime);
+                int clientId = saveClientToDatabase(chatId, name, phone, city, propertyType, dateTime);
+                if (clientId < 0) {
+                    SendMessage message = new SendMessage();
+                    message.setChatId(chatId.toString());
+                    message.setText("❌ Не удалось сохранить клиента " + name + ".\n" +
+                            "Возможно, номер телефона " + phone + " уже используется другим клиентом.");
+                    message.setReplyMarkup(getBackToMenuKeyboard());
+                    send(message);
+                    session.reset();
+                    return;
+                }
+                scheduleMeetingNotifications(chatId, clientId, name, phone, dateTime);
 
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
@@ -284,10 +425,9 @@ public class Bot extends TelegramLongPollingBot {
                         "📅 Звонок назначен на: " + dateTime + "\n\n" +
                         "Вы получите уведомления о звонке.");
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                execute(message);
+                send(message);
 
-                userStates.remove(chatIdStr);
-                tempDataMap.remove(chatId);
+                session.reset();
             }
         } catch (Exception e) {
             editMessage(chatId, "Неверный формат даты! Используйте формат: ГГГГ-ММ-ДД ЧЧ:ММ\nНапример: 2025-12-25 14:30");
@@ -295,14 +435,15 @@ public class Bot extends TelegramLongPollingBot {
     }
 
     // Обработка изменения текстовых параметров
-    private void handleTextParameterChange(Long chatId, String text) {
-        String chatIdStr = chatId.toString();
-        String state = userStates.get(chatIdStr);
-        String param = "";
-
-        if (state.equals("изменение имени")) {
-            param = "name";
-        } else if (state.equals("изменение телефона ввод")) {
+    private void handleTextParameterChange(Session session, String text) {
+        Long chatId = session.getChatId();
+        ChatState state = session.getState();
+        int clientId = session.getEditClientId();
+        ClientField field = null;
+
+        if (state == ChatState.EDIT_NAME) {
+            field = ClientField.NAME;
+        } else if (state == ChatState.EDIT_PHONE) {
             // Валидация телефона
             if (!text.matches("^8\\d{10}$")) {
                 editMessage(chatId,
@@ -315,9 +456,6 @@ public class Bot extends TelegramLongPollingBot {
                 return;
             }
 
-            // Получаем ID текущего клиента
-            int clientId = Integer.parseInt(userStates.get(chatIdStr + "_clientId"));
-
             // Проверяем, не занят ли номер другим клиентом (кроме текущего)
             if (isPhoneNumberTaken(text, clientId)) {
                 editMessage(chatId,
@@ -326,184 +464,162 @@ public class Bot extends TelegramLongPollingBot {
                 return;
             }
 
-            param = "phone";
-        } else if (state.equals("изменение города")) {
-            param = "city";
+            field = ClientField.PHONE;
+        } else if (state == ChatState.EDIT_CITY) {
+            field = ClientField.CITY;
         }
 
-        int clientId = Integer.parseInt(userStates.get(chatIdStr + "_clientId"));
-        updateClientParameter(chatId, clientId, param, text);
-        userStates.remove(chatIdStr);
-        userStates.remove(chatIdStr + "_clientId");
+        updateClientParameter(chatId, clientId, field, text);
+        session.reset();
     }
 
     // Обработка callback-запросов (нажатия на кнопки)
     private void handleCallbackQuery(Update update) {
         String callbackData = update.getCallbackQuery().getData();
         Long chatId = update.getCallbackQuery().getMessage().getChatId();
-        String chatIdStr = chatId.toString();
 
         try {
             // Сохраняем ID сообщения для последующего редактирования
             int messageId = update.getCallbackQuery().getMessage().getMessageId();
-            lastMessageIdMap.put(chatId, messageId);
-
-            if (callbackData.equals("добавить клиента")) {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatIdStr);
-                message.setText("👤 Введите имя клиента:");
-                message.setReplyMarkup(null);
-                execute(message);
-                userStates.put(chatIdStr, "ожидание имени");
-
-            } else if (callbackData.equals("назначить звонок")) {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatIdStr);
-                message.setText("Введите номер телефона клиента для поиска:");
-                message.setReplyMarkup(null);
-                execute(message);
-                userStates.put(chatIdStr, "поиск клиента для звонка");
+            sessions.getOrCreate(chatId).setLastMessageId(messageId);
 
-            } else if (callbackData.equals("список клиентов")) {
-                showClientsMenu(chatId);
-
-            } else if (callbackData.startsWith("тип_")) {
-                String propertyType = callbackData.replace("тип_", "");
-                if (!tempDataMap.containsKey(chatId)) {
-                    tempDataMap.put(chatId, new HashMap<>());
-                }
-                tempDataMap.get(chatId).put("type", propertyType);
+            if (!callbackRouter.route(chatId, callbackData)) {
+                Log.warn("Неизвестные данные кнопки", "data", callbackData);
+            }
 
-                Map<String, String> data = tempDataMap.get(chatId);
-                editMessage(chatId,
-                        "👤 Имя клиента: " + data.get("name") + "\n" +
-                                "📱 Телефон: " + data.get("phone") + "\n" +
-                                "🏙️ Город: " + data.get("city") + "\n" +
-                                "🏠 Тип недвижимости: " + propertyType + "\n\n" +
-                                "Введите дату и время звонка (формат: ГГГГ-ММ-ДД ЧЧ:ММ):\nПример: 2025-12-25 14:30");
-                userStates.put(chatIdStr, "ожидание даты звонка");
-
-            } else if (callbackData.startsWith("назначить_")) {
-                int clientId = Integer.parseInt(callbackData.replace("назначить_", ""));
-                userStates.put(chatIdStr + "_meeting_client", String.valueOf(clientId));
-                editMessage(chatId, "Введите дату и время звонка (формат: ГГГГ-ММ-ДД ЧЧ:ММ):\nПример: 2025-12-25 14:30");
-                userStates.put(chatIdStr, "звонок дата");
-
-            } else if (callbackData.startsWith("отложить_")) {
-                String meetingKey = callbackData.replace("отложить_", "");
-                userStates.put(chatIdStr + "_postpone", meetingKey);
-                showPostponeMenu(chatId);
-
-            } else if (callbackData.equals("отложить дни")) {
-                editMessage(chatId, "Введите количество дней для переноса:");
-                userStates.put(chatIdStr, "отложить дни");
-
-            } else if (callbackData.equals("отложить часы")) {
-                editMessage(chatId, "Введите количество часов для переноса:");
-                userStates.put(chatIdStr, "отложить часы");
-
-            } else if (callbackData.equals("отложить минуты")) {
-                editMessage(chatId, "Введите количество минут для переноса:");
-                userStates.put(chatIdStr, "отложить минуты");
-
-            } else if (callbackData.startsWith("завершить_")) {
-                String meetingKey = callbackData.replace("завершить_", "");
-                showCompletionOptions(chatId, meetingKey);
-
-            } else if (callbackData.startsWith("сделка_")) {
-                String[] parts = callbackData.split("_");
-                String meetingKey = parts[1];
-                String result = parts[2];
-                completeMeeting(chatId, meetingKey, result);
-
-            } else if (callbackData.equals("ближайшие звонки")) {
-                showUpcomingMeetings(chatId);
-
-            } else if (callbackData.equals("весь список")) {
-                sendAllClientsFile(chatId);
-
-            } else if (callbackData.equals("список по типу")) {
-                showPropertyTypesForList(chatId);
-
-            } else if (callbackData.startsWith("фильтр_тип_")) {
-                String propertyType = callbackData.replace("фильтр_тип_", "");
-                sendClientsByTypeFile(chatId, propertyType);
-
-            } else if (callbackData.equals("изменить данные")) {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatIdStr);
-                message.setText("Введите номер телефона клиента для изменения:");
-                message.setReplyMarkup(null);
-                execute(message);
-                userStates.put(chatIdStr, "изменение телефона");
+        } catch (Exception e) {
+            Log.error("Ошибка обработки кнопки", e, "data", callbackData);
+        }
+    }
 
-            } else if (callbackData.equals("удалить клиента")) {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatIdStr);
-                message.setText("Введите номер телефона клиента для удаления:");
-                message.setReplyMarkup(null);
-                execute(message);
-                userStates.put(chatIdStr, "удаление телефона");
-
-            } else if (callbackData.equals("статистика")) {
-                showStatistics(chatId);
-
-            } else if (callbackData.equals("список сделок")) {
-                sendCompletedDealsFile(chatId, "совершена");
-
-            } else if (callbackData.equals("список отказов")) {
-                sendCompletedDealsFile(chatId, "отказ");
-
-            } else if (callbackData.startsWith("изменить_")) {
-                String param = callbackData.replace("изменить_", "");
-                String clientIdStr = userStates.get(chatIdStr + "_edit_client");
-                if (clientIdStr != null) {
-                    int clientId = Integer.parseInt(clientIdStr);
-                    userStates.put(chatIdStr + "_clientId", String.valueOf(clientId));
-
-                    if (param.equals("property_type")) {
-                        showPropertyTypeSelection(chatId, "edit_" + clientId);
-                    } else {
-                        String messageText = "Введите новое значение для ";
-                        if (param.equals("name")) {
-                            messageText += "имени:";
-                            userStates.put(chatIdStr, "изменение имени");
-                        } else if (param.equals("phone")) {
-                            messageText += "телефона (формат: 81234567890):";
-                            userStates.put(chatIdStr, "изменение телефона ввод");
-                        } else if (param.equals("city")) {
-                            messageText += "города:";
-                            userStates.put(chatIdStr, "изменение города");
-                        }
-                        editMessage(chatId, messageText);
-                    }
-                }
+    // Таблица обработчиков кнопок (код действия -> обработчик)
+    private CallbackRouter createCallbackRouter() {
+        return new CallbackRouter()
+                .on(Callback.MAIN_MENU, (chatId, command) -> showMainMenu(chatId))
+                .on(Callback.CLIENTS_MENU, (chatId, command) -> showClientsMenu(chatId))
+                .on(Callback.ADD_CLIENT, (chatId, command) ->
+                        askForInput(chatId, "👤 Введите имя клиента:", ChatState.AWAITING_NAME))
+                .on(Callback.SCHEDULE_SEARCH, (chatId, command) ->
+                        askForInput(chatId, "Введите телефон, его последние цифры, имя или город клиента:", ChatState.SEARCH_FOR_MEETING))
+                .on(Callback.SCHEDULE_CLIENT, (chatId, command) -> {
+                    Session session = sessions.getOrCreate(chatId);
+                    session.setMeetingClientId(command.intArg(0));
+                    editMessage(chatId, "Введите дату и время звонка (формат: ГГГГ-ММ-ДД ЧЧ:ММ):\nПример: 2025-12-25 14:30");
+                    session.setState(ChatState.RESCHEDULE_MEETING);
+                })
+                .on(Callback.CREATE_TYPE, (chatId, command) ->
+                        selectPropertyTypeForCreate(chatId, PropertyType.byOrdinal(command.intArg(0))))
+                .on(Callback.POSTPONE, (chatId, command) -> {
+                    sessions.getOrCreate(chatId).setPostponeClientId(command.intArg(0));
+                    showPostponeMenu(chatId);
+                })
+                .on(Callback.POSTPONE_DAYS, (chatId, command) -> {
+                    editMessage(chatId, "Введите количество дней для переноса:");
+                    sessions.getOrCreate(chatId).setState(ChatState.POSTPONE_DAYS);
+                })
+                .on(Callback.POSTPONE_HOURS, (chatId, command) -> {
+                    editMessage(chatId, "Введите количество часов для переноса:");
+                    sessions.getOrCreate(chatId).setState(ChatState.POSTPONE_HOURS);
+                })
+                .on(Callback.POSTPONE_MINUTES, (chatId, command) -> {
+                    editMessage(chatId, "Введите количество минут для переноса:");
+                    sessions.getOrCreate(chatId).setState(ChatState.POSTPONE_MINUTES);
+                })
+                .on(Callback.COMPLETE, (chatId, command) -> showCompletionOptions(chatId, command.intArg(0)))
+                .on(Callback.DEAL_RESULT, (chatId, command) -> completeMeeting(chatId, command.intArg(0),
+                        command.arg(1) == 0 ? StatsCounters.RESULT_SUCCESS : StatsCounters.RESULT_REFUSED))
+                .on(Callback.UPCOMING, (chatId, command) -> showUpcomingMeetings(chatId))
+                .on(Callback.SEARCH_RESULT, (chatId, command) ->
+                        selectSearchResult(chatId, ChatState.values()[command.intArg(0)], command.intArg(1)))
+                .on(Callback.UPCOMING_NEXT, (chatId, command) ->
+                        showUpcomingPageAfter(chatId, fromEpochSeconds(command.arg(0)), command.intArg(1), command.intArg(2)))
+                .on(Callback.UPCOMING_PREV, (chatId, command) ->
+                        showUpcomingPageBefore(chatId, fromEpochSeconds(command.arg(0)), command.intArg(1), command.intArg(2)))
+                .on(Callback.ALL_CLIENTS, (chatId, command) -> sendAllClientsFile(chatId))
+                .on(Callback.IMPORT_CLIENTS, (chatId, command) -> askForInput(chatId,
+                        "📥 ЗАГРУЗКА КЛИЕНТОВ ИЗ CSV\n\n" +
+                                "Отправьте файл .csv, одна строка — один клиент. Колонки:\n" +
+                                "Имя, Телефон, Город, Тип недвижимости, Звонок\n\n" +
+                                "• Телефон в формате 81234567890\n" +
+                                "• Тип: студия, 1-комнатная, 2-комнатная, 3-комнатная или дом\n" +
+                                "• Звонок: ГГГГ-ММ-ДД ЧЧ:ММ, можно оставить пустым\n\n" +
+                                "Первой строкой можно указать заголовки колонок (как в выгрузке CSV) — тогда порядок колонок любой. " +
+                                "Клиенты с уже занятыми телефонами будут пропущены.",
+                        ChatState.AWAITING_IMPORT_FILE))
+                .on(Callback.EXPORT_FORMAT, (chatId, command) -> {
+                    Session session = sessions.getOrCreate(chatId);
+                    session.setExportFormat(session.getExportFormat().next());
+                    showClientsMenu(chatId);
+                })
+                .on(Callback.TYPE_LIST, (chatId, command) -> showPropertyTypesForList(chatId))
+                .on(Callback.TYPE_FILTER, (chatId, command) ->
+                        sendClientsByTypeFile(chatId, PropertyType.byOrdinal(command.intArg(0)).getValue()))
+                .on(Callback.EDIT_SEARCH, (chatId, command) ->
+                        askForInput(chatId, "Введите телефон, его последние цифры, имя или город клиента для изменения:", ChatState.SEARCH_FOR_EDIT))
+                .on(Callback.EDIT_FIELD, (chatId, command) ->
+                        selectFieldForEdit(chatId, ClientField.values()[command.intArg(0)]))
+                .on(Callback.EDIT_TYPE, (chatId, command) -> {
+                    String propertyType = PropertyType.byOrdinal(command.intArg(0)).getValue();
+                    updateClientParameter(chatId, command.intArg(1), ClientField.PROPERTY_TYPE, propertyType);
+                    sessions.getOrCreate(chatId).reset();
+                })
+                .on(Callback.DELETE_SEARCH, (chatId, command) ->
+                        askForInput(chatId, "Введите телефон, его последние цифры, имя или город клиента для удаления:", ChatState.SEARCH_FOR_DELETE))
+                .on(Callback.DELETE_CLIENT, (chatId, command) -> deleteClient(chatId, command.intArg(0)))
+                .on(Callback.STATISTICS, (chatId, command) -> showStatistics(chatId))
+                .on(Callback.SUCCESS_DEALS, (chatId, command) -> sendCompletedDealsFile(chatId, StatsCounters.RESULT_SUCCESS))
+                .on(Callback.REFUSED_DEALS, (chatId, command) -> sendCompletedDealsFile(chatId, StatsCounters.RESULT_REFUSED));
+    }
 
-            } else if (callbackData.startsWith("тип_изменить_")) {
-                String[] parts = callbackData.split("_");
-                String propertyType = parts[2];
-                int clientId = Integer.parseInt(parts[3]);
-                updateClientParameter(chatId, clientId, "property_type", propertyType);
-                userStates.remove(chatIdStr + "_edit_client");
-                userStates.remove(chatIdStr + "_clientId");
+    // Запросить ввод текста и перевести чат в состояние state
+    private void askForInput(Long chatId, String text, ChatState state) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText(text);
+        message.setReplyMarkup(null);
+        send(message);
+        sessions.getOrCreate(chatId).setState(state);
+    }
 
-            } else if (callbackData.startsWith("удалить_")) {
-                int clientId = Integer.parseInt(callbackData.replace("удалить_", ""));
-                deleteClient(chatId, clientId);
+    // Выбран тип недвижимости нового клиента: переход к вводу даты звонка
+    private void selectPropertyTypeForCreate(Long chatId, PropertyType type) {
+        Session session = sessions.getOrCreate(chatId);
+        session.setDraftPropertyType(type.getValue());
 
-            } else if (callbackData.equals("назад в меню")) {
-                showMainMenu(chatId);
+        editMessage(chatId,
+                "👤 Имя клиента: " + session.getDraftName() + "\n" +
+                        "📱 Телефон: " + session.getDraftPhone() + "\n" +
+                        "🏙️ Город: " + session.getDraftCity() + "\n" +
+                        "🏠 Тип недвижимости: " + type.getValue() + "\n\n" +
+                        "Введите дату и время звонка (формат: ГГГГ-ММ-ДД ЧЧ:ММ):\nПример: 2025-12-25 14:30");
+        session.setState(ChatState.AWAITING_MEETING_TIME);
+    }
 
-            } else if (callbackData.equals("назад к спискам")) {
-                showClientsMenu(chatId);
+    // Выбран параметр клиента для изменения
+    private void selectFieldForEdit(Long chatId, ClientField field) {
+        Session session = sessions.getOrCreate(chatId);
+        int clientId = session.getEditClientId();
+        if (clientId == Session.NO_CLIENT) {
+            return;
+        }
 
-            } else if (callbackData.equals("меню после операции")) {
-                showMainMenu(chatId);
-            }
+        if (field == ClientField.PROPERTY_TYPE) {
+            showPropertyTypeSelection(chatId, "edit_" + clientId);
+            return;
+        }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+        String messageText = "Введите новое значение для ";
+        if (field == ClientField.NAME) {
+            messageText += "имени:";
+            session.setState(ChatState.EDIT_NAME);
+        } else if (field == ClientField.PHONE) {
+            messageText += "телефона (формат: 81234567890):";
+            session.setState(ChatState.EDIT_PHONE);
+        } else if (field == ClientField.CITY) {
+            messageText += "города:";
+            session.setState(ChatState.EDIT_CITY);
         }
+        editMessage(chatId, messageText);
     }
 
     // Показать приветственный экран
@@ -520,7 +636,7 @@ public class Bot extends TelegramLongPollingBot {
 
         InlineKeyboardButton startBtn = InlineKeyboardButton.builder()
                 .text("🚀 Начать работу")
-                .callbackData("меню после операции")
+                .callbackData(Callback.MAIN_MENU.data())
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -529,33 +645,63 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
+    }
+
+    // Отправка сообщения через очередь исходящих запросов
+    private CompletableFuture<Message> send(SendMessage message) {
+        return send(message, SendQueue.Priority.INTERACTIVE);
+    }
+
+    private CompletableFuture<Message> send(SendMessage message, SendQueue.Priority priority) {
+        return sendQueue.submit(Long.parseLong(message.getChatId()), priority, () -> execute(message));
+    }
+
+    // Отправка файла с низким приоритетом, чтобы выгрузки не задерживали напоминания
+    private CompletableFuture<Message> sendDocument(SendDocument document) {
+        return sendQueue.submit(Long.parseLong(document.getChatId()), SendQueue.Priority.BULK, () -> execute(document));
     }
 
     // Редактировать существующее сообщение
     private void editMessage(Long chatId, String text) {
         try {
-            Integer messageId = lastMessageIdMap.get(chatId);
-            if (messageId != null) {
+            Session session = sessions.get(chatId);
+            if (session != null && session.getLastMessageId() != 0) {
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
                 message.setText(text);
                 message.setReplyMarkup(null);
 
                 // Сначала отправляем новое сообщение
-                execute(message);
+                send(message);
 
                 // Сохраняем ID нового сообщения
                 // Note: В реальности нужно получить ID отправленного сообщения,
-                // но для упрощения будем обновлять lastMessageIdMap при callback
+                // но для упрощения обновляем ID в сессии при callback
             }
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка редактирования сообщения", e);
+        }
+    }
+
+    // Заменить текст и кнопки сообщения, на кнопку которого нажали; без него — отправить новое сообщение
+    private void replaceMessage(Long chatId, String text, InlineKeyboardMarkup keyboard) {
+        Session session = sessions.get(chatId);
+        if (session == null || session.getLastMessageId() == 0) {
+            SendMessage message = new SendMessage();
+            message.setChatId(chatId.toString());
+            message.setText(text);
+            message.setReplyMarkup(keyboard);
+            send(message);
+            return;
         }
+        EditMessageText edit = EditMessageText.builder()
+                .chatId(chatId.toString())
+                .messageId(session.getLastMessageId())
+                .text(text)
+                .replyMarkup(keyboard)
+                .build();
+        sendQueue.submit(chatId, SendQueue.Priority.INTERACTIVE, () -> execute(edit));
     }
 
     // Показать выбор типа недвижимости
@@ -574,86 +720,52 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
     }
 
     // Клавиатура для выбора типа недвижимости при создании
     private InlineKeyboardMarkup getPropertyTypeKeyboardForCreate() {
-        InlineKeyboardButton studioBtn = InlineKeyboardButton.builder()
-                .text("🏢 Студия")
-                .callbackData("тип_студия")
-                .build();
-
-        InlineKeyboardButton oneRoomBtn = InlineKeyboardButton.builder()
-                .text("1️⃣ 1-комнатная")
-                .callbackData("тип_1-комнатная")
-                .build();
-
-        InlineKeyboardButton twoRoomBtn = InlineKeyboardButton.builder()
-                .text("2️⃣ 2-комнатная")
-                .callbackData("тип_2-комнатная")
-                .build();
-
-        InlineKeyboardButton threeRoomBtn = InlineKeyboardButton.builder()
-                .text("3️⃣ 3-комнатная")
-                .callbackData("тип_3-комнатная")
-                .build();
-
-        InlineKeyboardButton houseBtn = InlineKeyboardButton.builder()
-                .text("🏡 Дом")
-                .callbackData("тип_дом")
-                .build();
-
         return InlineKeyboardMarkup.builder()
-                .keyboardRow(List.of(studioBtn, oneRoomBtn))
-                .keyboardRow(List.of(twoRoomBtn, threeRoomBtn))
-                .keyboardRow(List.of(houseBtn))
+                .keyboard(getPropertyTypeRows(Callback.CREATE_TYPE))
                 .build();
     }
 
     // Клавиатура для выбора типа недвижимости при редактировании
     private InlineKeyboardMarkup getPropertyTypeKeyboardForEdit(int clientId) {
-        InlineKeyboardButton studioBtn = InlineKeyboardButton.builder()
-                .text("🏢 Студия")
-                .callbackData("тип_изменить_студия_" + clientId)
-                .build();
-
-        InlineKeyboardButton oneRoomBtn = InlineKeyboardButton.builder()
-                .text("1️⃣ 1-комнатная")
-                .callbackData("тип_изменить_1-комнатная_" + clientId)
-                .build();
-
-        InlineKeyboardButton twoRoomBtn = InlineKeyboardButton.builder()
-                .text("2️⃣ 2-комнатная")
-                .callbackData("тип_изменить_2-комнатная_" + clientId)
-                .build();
-
-        InlineKeyboardButton threeRoomBtn = InlineKeyboardButton.builder()
-                .text("3️⃣ 3-комнатная")
-                .callbackData("тип_изменить_3-комнатная_" + clientId)
-                .build();
-
-        InlineKeyboardButton houseBtn = InlineKeyboardButton.builder()
-                .text("🏡 Дом")
-                .callbackData("тип_изменить_дом_" + clientId)
-                .build();
-
         return InlineKeyboardMarkup.builder()
-                .keyboardRow(List.of(studioBtn, oneRoomBtn))
-                .keyboardRow(List.of(twoRoomBtn, threeRoomBtn))
-                .keyboardRow(List.of(houseBtn))
+                .keyboard(getPropertyTypeRows(Callback.EDIT_TYPE, clientId))
                 .build();
     }
 
+    // Кнопки типов недвижимости по две в ряд; данные кнопки — action(тип, extraArgs...)
+    private List<List<InlineKeyboardButton>> getPropertyTypeRows(Callback action, long... extraArgs) {
+        List<List<InlineKeyboardButton>> rows = new ArrayList<>();
+        List<InlineKeyboardButton> row = new ArrayList<>();
+        for (PropertyType type : PropertyType.values()) {
+            long[] args = new long[extraArgs.length + 1];
+            args[0] = type.ordinal();
+            System.arraycopy(extraArgs, 0, args, 1, extraArgs.length);
+
+            row.add(InlineKeyboardButton.builder()
+                    .text(type.getButtonText())
+                    .callbackData(action.data(args))
+                    .build());
+            if (row.size() == 2) {
+                rows.add(row);
+                row = new ArrayList<>();
+            }
+        }
+        if (!row.isEmpty()) {
+            rows.add(row);
+        }
+        return rows;
+    }
+
     // Клавиатура для возврата в меню
     private InlineKeyboardMarkup getBackToMenuKeyboard() {
         InlineKeyboardButton menuBtn = InlineKeyboardButton.builder()
                 .text("🏠 Главное меню")
-                .callbackData("меню после операции")
+                .callbackData(Callback.MAIN_MENU.data())
                 .build();
 
         return InlineKeyboardMarkup.builder()
@@ -670,17 +782,17 @@ public class Bot extends TelegramLongPollingBot {
 
         InlineKeyboardButton btn1 = InlineKeyboardButton.builder()
                 .text("➕ Добавить клиента")
-                .callbackData("добавить клиента")
+                .callbackData(Callback.ADD_CLIENT.data())
                 .build();
 
         InlineKeyboardButton btn2 = InlineKeyboardButton.builder()
                 .text("📅 Назначить звонок клиенту")
-                .callbackData("назначить звонок")
+                .callbackData(Callback.SCHEDULE_SEARCH.data())
                 .build();
 
         InlineKeyboardButton btn3 = InlineKeyboardButton.builder()
                 .text("📋 Списки клиентов")
-                .callbackData("список клиентов")
+                .callbackData(Callback.CLIENTS_MENU.data())
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -691,11 +803,7 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
     }
 
     // Показать меню работы с клиентами
@@ -706,77 +814,123 @@ public class Bot extends TelegramLongPollingBot {
 
         InlineKeyboardButton btn1 = InlineKeyboardButton.builder()
                 .text("📅 Ближайшие звонки")
-                .callbackData("ближайшие звонки")
+                .callbackData(Callback.UPCOMING.data())
                 .build();
 
         InlineKeyboardButton btn2 = InlineKeyboardButton.builder()
                 .text("📄 Весь список клиентов")
-                .callbackData("весь список")
+                .callbackData(Callback.ALL_CLIENTS.data())
                 .build();
 
         InlineKeyboardButton btn3 = InlineKeyboardButton.builder()
                 .text("🏠 Список по типу недвижимости")
-                .callbackData("список по типу")
+                .callbackData(Callback.TYPE_LIST.data())
                 .build();
 
         InlineKeyboardButton btn4 = InlineKeyboardButton.builder()
                 .text("✏️ Изменить данные клиента")
-                .callbackData("изменить данные")
+                .callbackData(Callback.EDIT_SEARCH.data())
                 .build();
 
         InlineKeyboardButton btn5 = InlineKeyboardButton.builder()
                 .text("🗑️ Удалить клиента")
-                .callbackData("удалить клиента")
+                .callbackData(Callback.DELETE_SEARCH.data())
                 .build();
 
         InlineKeyboardButton btn6 = InlineKeyboardButton.builder()
                 .text("📊 Статистика")
-                .callbackData("статистика")
+                .callbackData(Callback.STATISTICS.data())
+                .build();
+
+        InlineKeyboardButton btn7 = InlineKeyboardButton.builder()
+                .text("💾 Формат файлов: " + getExportFormat(chatId).getDisplayName())
+                .callbackData(Callback.EXPORT_FORMAT.data())
+                .build();
+
+        InlineKeyboardButton btn8 = InlineKeyboardButton.builder()
+                .text("📥 Загрузить клиентов из CSV")
+                .callbackData(Callback.IMPORT_CLIENTS.data())
                 .build();
 
         InlineKeyboardButton btnBack = InlineKeyboardButton.builder()
                 .text("🔙 Назад в меню")
-                .callbackData("назад в меню")
+                .callbackData(Callback.MAIN_MENU.data())
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
                 .keyboardRow(List.of(btn1))
                 .keyboardRow(List.of(btn2, btn3))
+                .keyboardRow(List.of(btn8))
                 .keyboardRow(List.of(btn4, btn5))
-                .keyboardRow(List.of(btn6))
+                .keyboardRow(List.of(btn6, btn7))
                 .keyboardRow(List.of(btnBack))
                 .build();
 
         message.setReplyMarkup(keyboard);
 
+        send(message);
+    }
+
+    // Формат выгрузки, выбранный в чате (по умолчанию текстовый)
+    private ExportFormat getExportFormat(Long chatId) {
+        Session session = sessions.get(chatId);
+        return session != null ? session.getExportFormat() : ExportFormat.TEXT;
+    }
+
+    // Показатели состояния бота для метрик (снимаются при каждом запросе метрик)
+    private void registerMetrics() {
+        Metrics metrics = Metrics.global();
+        metrics.gauge("bot_reminders_pending", "Уведомления, ожидающие в планировщике", scheduler::pendingCount);
+        metrics.gauge("bot_meetings_scheduled", "Звонки с запланированными уведомлениями", meetingTasks::size);
+        metrics.gauge("bot_sessions", "Сессии диалогов в памяти", sessions::size);
+        metrics.gauge("bot_dispatcher_active_chats", "Чаты с необработанными обновлениями", dispatcher::activeLanes);
+        metrics.gauge("bot_send_queue_size", "Запросы к Telegram в общей очереди отправки", sendQueue::size);
+        metrics.gauge("bot_db_pool_active", "Выданные соединения пула", () -> connectionPool.getStats().active());
+        metrics.gauge("bot_db_pool_idle", "Свободные соединения пула", () -> connectionPool.getStats().idle());
+        metrics.gauge("bot_db_pool_max_wait_seconds", "Самое долгое ожидание соединения с запуска",
+                () -> connectionPool.getStats().maxWaitMillis() / 1000.0);
+        metrics.gauge("bot_client_cache_size", "Записи в кэше клиентов", () -> clientRepository.getCacheStats().size());
+    }
+
+    // Загрузка счетчиков статистики одним запросом (выполняется один раз при запуске)
+    private void loadStatistics() {
         try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
+            stats.load();
+        } catch (SQLException e) {
+            Log.error("Ошибка загрузки статистики", e);
         }
     }
 
-    // Инициализация подключения к базе данных
-    private void initializeDatabase() {
+    // Загрузка индексов телефонов (проверка дубликатов без запросов) и поиска клиентов (выполняется один раз при запуске)
+    private void loadClientIndexes() {
         try {
-            if (connection == null || connection.isClosed()) {
-                Class.forName("com.mysql.cj.jdbc.Driver");
-                connection = DriverManager.getConnection(
-                        "jdbc:mysql://localhost:3306/investment_tg_bot",
-                        "root",
-                        "010203456456"
-                );
-                createTables();
-                System.out.println("База данных подключена успешно");
-            }
+            clientRepository.loadIndexes();
+        } catch (SQLException e) {
+            Log.error("Ошибка загрузки индексов клиентов", e);
+        }
+    }
+
+    // Загрузка номера последнего обработанного обновления (выполняется один раз при запуске)
+    private void loadUpdateOffset() {
+        try {
+            updateOffsets.load();
+        } catch (SQLException e) {
+            Log.error("Ошибка загрузки номера обновления", e);
+        }
+    }
+
+    // Инициализация базы данных (выполняется один раз при запуске)
+    private void initializeDatabase() {
+        try (PooledConnection connection = connectionPool.acquire()) {
+            createTables(connection);
+            Log.info("База данных подключена успешно");
         } catch (Exception e) {
-            System.out.println("Ошибка подключения к БД: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Ошибка подключения к БД", e);
         }
     }
 
     // Создание таблиц в базе данных
-    private void createTables() throws SQLException {
+    private void createTables(PooledConnection connection) throws SQLException {
         String createClientsTable = """
     CREATE TABLE IF NOT EXISTS clients (
         id INT AUTO_INCREMENT PRIMARY KEY,
@@ -785,6 +939,8 @@ public class Bot extends TelegramLongPollingBot {
         city VARCHAR(100) NOT NULL,
         property_type VARCHAR(50) NOT NULL,
         meeting_time DATETIME,
+        reminder_chat_id BIGINT,
+        reminder_state TINYINT NOT NULL DEFAULT 0,
         created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
         INDEX idx_phone (phone),
         INDEX idx_meeting_time (meeting_time)
@@ -802,6 +958,13 @@ public class Bot extends TelegramLongPollingBot {
         result VARCHAR(50) NOT NULL,
         deal_date TIMESTAMP DEFAULT CURRENT_TIMESTAMP
     )
+    """;
+
+        String createBotStateTable = """
+    CREATE TABLE IF NOT EXISTS bot_state (
+        name VARCHAR(64) PRIMARY KEY,
+        value BIGINT NOT NULL
+    )
     """;
 
         try (Statement stmt = connection.createStatement()) {
@@ -811,64 +974,138 @@ public class Bot extends TelegramLongPollingBot {
             // Создаем таблицу deals (она создастся только если не существует)
             stmt.execute(createDealsTable);
 
-            System.out.println("Таблицы созданы/проверены успешно");
+            // Служебные значения бота (номер последнего обработанного обновления)
+            stmt.execute(createBotStateTable);
+
+            // Колонки уведомлений для таблиц, созданных до их появления
+            addColumnIfMissing(connection, "clients", "reminder_chat_id", "BIGINT");
+            addColumnIfMissing(connection, "clients", "reminder_state", "TINYINT NOT NULL DEFAULT 0");
+
+            Log.info("Таблицы созданы/проверены успешно");
 
         } catch (SQLException e) {
-            System.out.println("Ошибка при создании таблиц: " + e.getMessage());
+            Log.error("Ошибка при создании таблиц", e);
             throw e;
         }
     }
 
-    // Сохранение клиента в базу данных
-    private void saveClientToDatabase(String name, String phone, String city, String propertyType, String meetingTime) {
-        initializeDatabase();
-
-        String sql = "INSERT INTO clients (name, phone, city, property_type, meeting_time) VALUES (?, ?, ?, ?, ?)";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            pstmt.setString(1, name);
-            pstmt.setString(2, phone);
-            pstmt.setString(3, city);
-            pstmt.setString(4, propertyType);
-            pstmt.setString(5, meetingTime + ":00");
-            pstmt.executeUpdate();
-            System.out.println("Клиент сохранен: " + name + ", телефон: " + phone);
+    // Добавление колонки, если таблица была создана предыдущей версией бота
+    private void addColumnIfMissing(PooledConnection connection, String table, String column, String definition) throws SQLException {
+        Connection raw = connection.getRawConnection();
+        try (ResultSet rs = raw.getMetaData().getColumns(raw.getCatalog(), null, table, column)) {
+            if (rs.next()) {
+                return;
+            }
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+            Log.info("Добавлена колонка", "table", table, "column", column);
+        }
+    }
 
+    // Сохранение клиента в базу данных, возвращает ID клиента (-1 при ошибке)
+    private int saveClientToDatabase(Long chatId, String name, String phone, String city, String propertyType, String meetingTime) {
+        try {
+            int clientId = clientRepository.insert(name, phone, city, propertyType, LocalDateTime.parse(meetingTime, formatter), chatId);
+            stats.clientAdded();
+            Log.info("Клиент сохранен", "clientId", clientId, "name", name, "phone", phone);
+            return clientId;
+
+        } catch (SQLIntegrityConstraintViolationException e) {
+            // Номер успели занять после проверки (индекс телефонов отстал от БД)
+            Log.warn("Телефон уже используется, клиент не сохранен", "phone", phone);
         } catch (SQLException e) {
-            System.out.println("Ошибка сохранения клиента: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Ошибка сохранения клиента", e);
         }
+        return -1;
     }
 
     // Планирование уведомлений о звонке
-    private void scheduleMeetingNotifications(Long chatId, String name, String phone, String meetingTimeStr) {
+    void scheduleMeetingNotifications(Long chatId, int clientId, String name, String phone, String meetingTimeStr) {
         try {
             LocalDateTime meetingTime = LocalDateTime.parse(meetingTimeStr + ":00", DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss"));
+            scheduleReminder(new Reminder(clientId, chatId, name, phone, meetingTime, Reminder.PENDING));
+            Log.info("Уведомления о звонке запланированы", "clientId", clientId, "meetingTime", meetingTime);
 
-            // Напоминание за 5 минут
-            LocalDateTime notification5min = meetingTime.minusMinutes(5);
-            if (notification5min.isAfter(LocalDateTime.now())) {
-                long delay5min = Duration.between(LocalDateTime.now(), notification5min).getSeconds();
-                scheduler.schedule(() -> {
-                    sendSimpleReminder(chatId, name, phone, meetingTimeStr);
-                }, delay5min, TimeUnit.SECONDS);
-                System.out.println("Напоминание за 5 минут запланировано на: " + notification5min);
-            }
+        } catch (Exception e) {
+            Log.error("Ошибка планирования уведомлений", e);
+        }
+    }
 
-            // Уведомление о начале звонка
-            if (meetingTime.isAfter(LocalDateTime.now())) {
-                long delayExact = Duration.between(LocalDateTime.now(), meetingTime).getSeconds();
-                scheduler.schedule(() -> {
-                    sendMeetingNotificationWithMenu(chatId, name, phone, meetingTimeStr);
-                }, delayExact, TimeUnit.SECONDS);
-                System.out.println("Уведомление о начале звонка запланировано на: " + meetingTime);
-            } else {
-                sendMeetingNotificationWithMenu(chatId, name, phone, meetingTimeStr);
+    // Отмена всех уведомлений по звонку клиента, возвращает число отмененных задач
+    int cancelMeetingNotifications(int clientId) {
+        return meetingTasks.cancel(clientId);
+    }
+
+    // Планирование уведомлений по сохраненному звонку с учетом уже отправленных
+    private void scheduleReminder(Reminder reminder) {
+        Long chatId = reminder.chatId();
+        String meetingTimeStr = reminder.meetingTime().format(formatter);
+        LocalDateTime now = LocalDateTime.now();
+
+        // Напоминание за 5 минут
+        LocalDateTime notification5min = reminder.meetingTime().minusMinutes(5);
+        if (reminder.state() == Reminder.PENDING && notification5min.isAfter(now)) {
+            meetingTasks.schedule(reminder.clientId(), reminder.phone(), toEpochMillis(notification5min), () -> {
+                sendSimpleReminder(chatId, reminder.name(), reminder.phone(), meetingTimeStr);
+                saveReminderState(reminder, Reminder.REMINDED);
+            });
+        }
+
+        // Уведомление о начале звонка
+        if (reminder.meetingTime().isAfter(now)) {
+            meetingTasks.schedule(reminder.clientId(), reminder.phone(), toEpochMillis(reminder.meetingTime()), () -> {
+                sendMeetingNotificationWithMenu(chatId, reminder.clientId(), reminder.name(), reminder.phone(), meetingTimeStr);
+                saveReminderState(reminder, Reminder.DELIVERED);
+            });
+        } else {
+            sendMeetingNotificationWithMenu(chatId, reminder.clientId(), reminder.name(), reminder.phone(), meetingTimeStr);
+            saveReminderState(reminder, Reminder.DELIVERED);
+        }
+    }
+
+    private long toEpochMillis(LocalDateTime time) {
+        return time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    // Сохранение состояния уведомлений, чтобы после перезапуска не отправить их повторно
+    private void saveReminderState(Reminder reminder, int state) {
+        try {
+            clientRepository.updateReminderState(reminder.clientId(), reminder.meetingTime(), state);
+        } catch (SQLException e) {
+            Log.error("Ошибка сохранения состояния уведомления", e, "clientId", reminder.clientId());
+        }
+    }
+
+    // Восстановление уведомлений после перезапуска: один проход по idx_meeting_time.
+    // Звонки старше MISSED_REMINDERS_WINDOW уже неактуальны: их уведомления закрываются без отправки
+    private void restoreReminders() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime cutoff = now.minus(MISSED_REMINDERS_WINDOW);
+        List<Reminder> missed = new ArrayList<>();
+        int[] restored = {0};
+
+        try {
+            int expired = clientRepository.closeRemindersBefore(cutoff);
+            clientRepository.forEachPendingReminder(cutoff, reminder -> {
+                if (reminder.meetingTime().isAfter(now)) {
+                    scheduleReminder(reminder);
+                    restored[0]++;
+                } else {
+                    missed.add(reminder);
+                }
+            });
+
+            // Звонки, время которых наступило, пока бот был остановлен, отправляем одним пакетом
+            for (Reminder reminder : missed) {
+                sendMeetingNotificationWithMenu(reminder.chatId(), reminder.clientId(), reminder.name(), reminder.phone(),
+                        reminder.meetingTime().format(formatter));
             }
+            clientRepository.markRemindersDelivered(missed);
 
-        } catch (Exception e) {
-            System.out.println("Ошибка планирования уведомлений: " + e.getMessage());
-            e.printStackTrace();
+            Log.info("Восстановлены уведомления о звонках", "restored", restored[0], "missed", missed.size(), "expired", expired);
+        } catch (SQLException e) {
+            Log.error("Ошибка восстановления уведомлений", e);
         }
     }
 
@@ -880,16 +1117,17 @@ public class Bot extends TelegramLongPollingBot {
                 "📅 Время: " + meetingTime + "\n" +
                 "📱 Телефон: " + phone);
 
-        try {
-            execute(message);
-            System.out.println("Простое напоминание отправлено для клиента: " + name);
-        } catch (Exception e) {
-            System.out.println("Ошибка отправки простого напоминания: " + e.getMessage());
-        }
+        send(message, SendQueue.Priority.REMINDER).whenComplete((sent, error) -> {
+            if (error == null) {
+                Log.info("Напоминание отправлено", "chatId", chatId, "name", name);
+            } else {
+                Log.warn("Ошибка отправки напоминания", error, "chatId", chatId, "name", name);
+            }
+        });
     }
 
     // Отправка уведомления о звонке с меню действий
-    private void sendMeetingNotificationWithMenu(Long chatId, String name, String phone, String meetingTime) {
+    private void sendMeetingNotificationWithMenu(Long chatId, int clientId, String name, String phone, String meetingTime) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText("🕐 ВРЕМЯ ЗВОНКА!\n\n" +
@@ -898,16 +1136,14 @@ public class Bot extends TelegramLongPollingBot {
                 "📅 Время звонка: " + meetingTime + "\n\n" +
                 "Выберите действие:");
 
-        String meetingKey = phone + "_" + System.currentTimeMillis(); // Уникальный ключ встречи
-
         InlineKeyboardButton postponeBtn = InlineKeyboardButton.builder()
                 .text("📅 Отложить звонок")
-                .callbackData("отложить_" + meetingKey)
+                .callbackData(Callback.POSTPONE.data(clientId))
                 .build();
 
         InlineKeyboardButton completeBtn = InlineKeyboardButton.builder()
                 .text("✅ Сделка завершена")
-                .callbackData("завершить_" + meetingKey)
+                .callbackData(Callback.COMPLETE.data(clientId))
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -917,13 +1153,13 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-            System.out.println("Уведомление с меню отправлено для клиента: " + name);
-        } catch (Exception e) {
-            System.out.println("Ошибка отправки уведомления с меню: " + e.getMessage());
-            e.printStackTrace();
-        }
+        send(message, SendQueue.Priority.REMINDER).whenComplete((sent, error) -> {
+            if (error == null) {
+                Log.info("Уведомление с меню отправлено", "chatId", chatId, "clientId", clientId, "name", name);
+            } else {
+                Log.warn("Ошибка отправки уведомления с меню", error, "chatId", chatId, "clientId", clientId);
+            }
+        });
     }
 
     // Показать меню откладывания звонка
@@ -934,22 +1170,22 @@ public class Bot extends TelegramLongPollingBot {
 
         InlineKeyboardButton daysBtn = InlineKeyboardButton.builder()
                 .text("📅 Дни")
-                .callbackData("отложить дни")
+                .callbackData(Callback.POSTPONE_DAYS.data())
                 .build();
 
         InlineKeyboardButton hoursBtn = InlineKeyboardButton.builder()
                 .text("⏰ Часы")
-                .callbackData("отложить часы")
+                .callbackData(Callback.POSTPONE_HOURS.data())
                 .build();
 
         InlineKeyboardButton minutesBtn = InlineKeyboardButton.builder()
                 .text("⏱️ Минуты")
-                .callbackData("отложить минуты")
+                .callbackData(Callback.POSTPONE_MINUTES.data())
                 .build();
 
         InlineKeyboardButton backBtn = InlineKeyboardButton.builder()
                 .text("🔙 Отмена")
-                .callbackData("назад в меню")
+                .callbackData(Callback.MAIN_MENU.data())
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -959,141 +1195,87 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
     }
 
     // Отложить звонок
-    private void postponeMeeting(Long chatId, String meetingKey, int days, int hours, int minutes) {
+    private void postponeMeeting(Long chatId, int clientId, int days, int hours, int minutes) {
         try {
-            System.out.println("Откладывание звонка, meetingKey: " + meetingKey);
+            Log.debug("Откладывание звонка", "clientId", clientId, "days", days, "hours", hours, "minutes", minutes);
 
-            String phone;
-            if (meetingKey.contains("_")) {
-                String[] parts = meetingKey.split("_");
-                if (parts.length >= 1) {
-                    phone = parts[0];
-                } else {
+            Optional<Client> found = clientRepository.findById(clientId);
+
+            if (found.isPresent()) {
+                Client client = found.get();
+                String name = client.name();
+                String phone = client.phone();
+
+                if (client.meetingTime() == null) {
                     SendMessage message = new SendMessage();
                     message.setChatId(chatId.toString());
-                    message.setText("❌ Неверный формат данных звонка.");
-                    execute(message);
+                    message.setText("❌ У клиента нет назначенного звонка.");
+                    send(message);
                     return;
                 }
-            } else {
-                phone = meetingKey;
-            }
 
-            System.out.println("Откладывание звонка для телефона: " + phone);
-
-            initializeDatabase();
-
-            String findSql = "SELECT id, name, meeting_time FROM clients WHERE phone = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(findSql)) {
-                pstmt.setString(1, phone);
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    int clientId = rs.getInt("id");
-                    String name = rs.getString("name");
-                    Timestamp oldTimestamp = rs.getTimestamp("meeting_time");
-
-                    if (oldTimestamp == null) {
-                        SendMessage message = new SendMessage();
-                        message.setChatId(chatId.toString());
-                        message.setText("❌ У клиента нет назначенного звонка.");
-                        execute(message);
-                        return;
-                    }
-
-                    LocalDateTime newTime = oldTimestamp.toLocalDateTime()
-                            .plusDays(days)
-                            .plusHours(hours)
-                            .plusMinutes(minutes);
-
-                    String updateSql = "UPDATE clients SET meeting_time = ? WHERE id = ?";
-                    try (PreparedStatement updateStmt = connection.prepareStatement(updateSql)) {
-                        updateStmt.setTimestamp(1, Timestamp.valueOf(newTime));
-                        updateStmt.setInt(2, clientId);
-                        updateStmt.executeUpdate();
-                        System.out.println("Время звонка обновлено в clients");
-                    }
-
-                    // Отмена старых задач уведомлений
-                    for (String key : new ArrayList<>(meetingTasks.keySet())) {
-                        if (key.contains("_" + phone + "_")) {
-                            ScheduledFuture<?> task = meetingTasks.get(key);
-                            if (task != null) {
-                                task.cancel(false);
-                            }
-                            meetingTasks.remove(key);
-                        }
-                    }
-
-                    // Планирование новых уведомлений
-                    String newTimeStr = newTime.format(DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm"));
-                    scheduleMeetingNotifications(chatId, name, phone, newTimeStr);
+                LocalDateTime newTime = client.meetingTime()
+                        .plusDays(days)
+                        .plusHours(hours)
+                        .plusMinutes(minutes);
 
-                    SendMessage message = new SendMessage();
-                    message.setChatId(chatId.toString());
-                    message.setText("✅ Звонок отложен на:\n" +
-                            (days > 0 ? "📅 Дней: " + days + "\n" : "") +
-                            (hours > 0 ? "⏰ Часов: " + hours + "\n" : "") +
-                            (minutes > 0 ? "⏱️ Минут: " + minutes + "\n" : "") +
-                            "\nНовое время звонка: " + newTimeStr);
-                    message.setReplyMarkup(getBackToMenuKeyboard());
-                    execute(message);
+                clientRepository.updateMeetingTime(clientId, newTime, chatId);
+                Log.debug("Время звонка обновлено в clients", "clientId", clientId);
 
-                    System.out.println("Звонок успешно отложен на новое время: " + newTimeStr);
-                } else {
-                    SendMessage message = new SendMessage();
-                    message.setChatId(chatId.toString());
-                    message.setText("❌ Клиент с телефоном " + phone + " не найден в базе данных.");
-                    message.setReplyMarkup(getBackToMenuKeyboard());
-                    execute(message);
-                    System.out.println("Клиент не найден по телефону: " + phone);
-                }
+                // Отмена старых задач уведомлений
+                meetingTasks.cancel(clientId);
+
+                // Планирование новых уведомлений
+                String newTimeStr = newTime.format(formatter);
+                scheduleMeetingNotifications(chatId, clientId, name, phone, newTimeStr);
+
+                SendMessage message = new SendMessage();
+                message.setChatId(chatId.toString());
+                message.setText("✅ Звонок отложен на:\n" +
+                        (days > 0 ? "📅 Дней: " + days + "\n" : "") +
+                        (hours > 0 ? "⏰ Часов: " + hours + "\n" : "") +
+                        (minutes > 0 ? "⏱️ Минут: " + minutes + "\n" : "") +
+                        "\nНовое время звонка: " + newTimeStr);
+                message.setReplyMarkup(getBackToMenuKeyboard());
+                send(message);
+
+                Log.info("Звонок отложен", "clientId", clientId, "meetingTime", newTimeStr);
+            } else {
+                SendMessage message = new SendMessage();
+                message.setChatId(chatId.toString());
+                message.setText("❌ Клиент не найден в базе данных.");
+                message.setReplyMarkup(getBackToMenuKeyboard());
+                send(message);
+                Log.info("Клиент не найден", "clientId", clientId);
             }
         } catch (Exception e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка при откладывании звонка: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("Ошибка при откладывании звонка: " + e.getMessage());
-            e.printStackTrace();
+            send(message);
+            Log.error("Ошибка при откладывании звонка", e);
         }
     }
 
     // Показать опции завершения сделки
-    private void showCompletionOptions(Long chatId, String meetingKey) {
+    private void showCompletionOptions(Long chatId, int clientId) {
         SendMessage message = new SendMessage();
         message.setChatId(chatId.toString());
         message.setText("Выберите результат сделки:");
 
-        String simplifiedKey;
-        if (meetingKey.contains("_")) {
-            String[] parts = meetingKey.split("_");
-            simplifiedKey = parts[0];
-        } else {
-            simplifiedKey = meetingKey;
-        }
-
         InlineKeyboardButton successBtn = InlineKeyboardButton.builder()
                 .text("✅ Сделка совершилась")
-                .callbackData("сделка_" + simplifiedKey + "_совершена")
+                .callbackData(Callback.DEAL_RESULT.data(clientId, 0))
                 .build();
 
         InlineKeyboardButton refuseBtn = InlineKeyboardButton.builder()
                 .text("❌ Сделка отказана")
-                .callbackData("сделка_" + simplifiedKey + "_отказ")
+                .callbackData(Callback.DEAL_RESULT.data(clientId, 1))
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -1103,207 +1285,208 @@ public class Bot extends TelegramLongPollingBot {
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
     }
 
     // Завершение звонка и сохранение сделки
-    private void completeMeeting(Long chatId, String meetingKey, String result) {
+    private void completeMeeting(Long chatId, int clientId, String result) {
         try {
-            System.out.println("Завершение сделки, meetingKey: " + meetingKey + ", result: " + result);
+            Log.debug("Завершение сделки", "clientId", clientId, "result", result);
 
-            String phone;
+            Optional<Client> found = clientRepository.findById(clientId);
 
-            if (meetingKey.contains("_")) {
-                String[] parts = meetingKey.split("_");
-                if (parts.length >= 1) {
-                    phone = parts[0];
-                } else {
-                    SendMessage message = new SendMessage();
-                    message.setChatId(chatId.toString());
-                    message.setText("❌ Неверный формат данных звонка.");
-                    message.setReplyMarkup(getBackToMenuKeyboard());
-                    execute(message);
-                    return;
-                }
-            } else {
-                phone = meetingKey;
-            }
+            if (found.isPresent()) {
+                Client client = found.get();
+                String name = client.name();
+                String phone = client.phone();
 
-            System.out.println("Завершение сделки для телефона: " + phone + ", результат: " + result);
-
-            initializeDatabase();
-
-            String findSql = "SELECT * FROM clients WHERE phone = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(findSql)) {
-                pstmt.setString(1, phone);
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    int clientId = rs.getInt("id");
-                    String name = rs.getString("name");
-                    String city = rs.getString("city");
-                    String propertyType = rs.getString("property_type");
-
-                    // Всегда добавляем новую запись в deals, даже если клиент уже есть
-                    String dealSql = "INSERT INTO deals (client_id, name, phone, city, property_type, result, deal_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
-                    try (PreparedStatement dealStmt = connection.prepareStatement(dealSql)) {
-                        dealStmt.setInt(1, clientId);
-                        dealStmt.setString(2, name);
-                        dealStmt.setString(3, phone);
-                        dealStmt.setString(4, city);
-                        dealStmt.setString(5, propertyType);
-                        dealStmt.setString(6, result);
-                        dealStmt.setTimestamp(7, Timestamp.valueOf(LocalDateTime.now()));
-                        dealStmt.executeUpdate();
-                        System.out.println("Новая сделка сохранена в deals: " + result + " для клиента " + name + " (ID: " + clientId + ")");
-                    }
-
-                    // Отмена запланированных уведомлений
-                    for (String key : new ArrayList<>(meetingTasks.keySet())) {
-                        if (key.contains("_" + phone + "_")) {
-                            ScheduledFuture<?> task = meetingTasks.get(key);
-                            if (task != null) {
-                                task.cancel(false);
-                            }
-                            meetingTasks.remove(key);
-                        }
-                    }
+                // Всегда добавляем новую запись в deals, даже если клиент уже есть
+                dealRepository.insert(client, result);
+                stats.dealCompleted(result);
+                clientRepository.closeReminder(client.id());
+                Log.debug("Сделка сохранена в deals", "clientId", client.id(), "result", result);
 
-                    SendMessage message = new SendMessage();
-                    message.setChatId(chatId.toString());
-                    message.setText("✅ Сделка завершена!\n" +
-                            "👤 Клиент: " + name + "\n" +
-                            "📱 Телефон: " + phone + "\n" +
-                            "📊 Результат: " + (result.equals("совершена") ? "✅ Совершена" : "❌ Отказ"));
-                    message.setReplyMarkup(getBackToMenuKeyboard());
-                    execute(message);
+                // Отмена запланированных уведомлений
+                meetingTasks.cancel(clientId);
 
-                    System.out.println("Сделка успешно завершена для клиента: " + name);
-                } else {
-                    SendMessage message = new SendMessage();
-                    message.setChatId(chatId.toString());
-                    message.setText("❌ Клиент с телефоном " + phone + " не найден.");
-                    message.setReplyMarkup(getBackToMenuKeyboard());
-                    execute(message);
-                    System.out.println("Клиент не найден при завершении сделки: " + phone);
-                }
+                SendMessage message = new SendMessage();
+                message.setChatId(chatId.toString());
+                message.setText("✅ Сделка завершена!\n" +
+                        "👤 Клиент: " + name + "\n" +
+                        "📱 Телефон: " + phone + "\n" +
+                        "📊 Результат: " + (result.equals(StatsCounters.RESULT_SUCCESS) ? "✅ Совершена" : "❌ Отказ"));
+                message.setReplyMarkup(getBackToMenuKeyboard());
+                send(message);
+
+                Log.info("Сделка завершена", "clientId", clientId, "name", name, "result", result);
+            } else {
+                SendMessage message = new SendMessage();
+                message.setChatId(chatId.toString());
+                message.setText("❌ Клиент не найден.");
+                message.setReplyMarkup(getBackToMenuKeyboard());
+                send(message);
+                Log.info("Клиент не найден при завершении сделки", "clientId", clientId);
             }
         } catch (Exception e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка при завершении сделки: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("Ошибка при завершении сделки: " + e.getMessage());
-            e.printStackTrace();
+            send(message);
+            Log.error("Ошибка при завершении сделки", e);
         }
     }
 
-    // Поиск клиента для назначения звонка
-    private void searchClientForMeeting(Long chatId, String phone) {
-        System.out.println("Поиск клиента для звонка по телефону: " + phone);
-        initializeDatabase();
-
-        String sql = "SELECT id, name, city, property_type FROM clients WHERE phone = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            ResultSet rs = pstmt.executeQuery();
-
-            if (rs.next()) {
-                int clientId = rs.getInt("id");
-                String name = rs.getString("name");
-                String city = rs.getString("city");
-                String propertyType = rs.getString("property_type");
-
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("✅ Клиент найден!\n\n" +
-                        "👤 Имя: " + name + "\n" +
-                        "📱 Телефон: " + phone + "\n" +
-                        "🏙️ Город: " + city + "\n" +
-                        "🏠 Тип недвижимости: " + propertyType + "\n\n" +
-                        "Назначить звонок?");
-
-                InlineKeyboardButton appointBtn = InlineKeyboardButton.builder()
-                        .text("📅 Назначить звонок")
-                        .callbackData("назначить_" + clientId)
-                        .build();
-
-                InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
-                        .text("❌ Отмена")
-                        .callbackData("назад в меню")
-                        .build();
-
-                InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
-                        .keyboardRow(List.of(appointBtn))
-                        .keyboardRow(List.of(cancelBtn))
-                        .build();
-
-                message.setReplyMarkup(keyboard);
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
+    // Поиск клиента по запросу: полный номер ищется в БД, часть имени, города или номера — по индексу в памяти.
+    // Один найденный клиент возвращается сразу, несколько — показываются кнопками (состояние поиска сохраняется,
+    // чтобы можно было уточнить запрос), при отсутствии совпадений поиск завершается
+    private Optional<Client> findClient(Long chatId, String query, ChatState flow) {
+        try {
+            if (query.matches("^8\\d{10}$")) {
+                Optional<Client> found = clientRepository.findByPhone(query);
+                if (found.isEmpty()) {
+                    showClientNotFound(chatId, query, flow);
                 }
-                System.out.println("Клиент найден: " + name);
+                return found;
+            }
+            if (SearchIndex.isTooShort(query)) {
+                editMessage(chatId, "Введите не меньше " + SearchIndex.MIN_QUERY_LENGTH +
+                        " символов: часть имени, города или последние цифры телефона.");
+                return Optional.empty();
+            }
 
-            } else {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("❌ Клиент с телефоном " + phone + " не найден.\n" +
-                        "Попробуйте еще раз или создайте нового клиента.");
-                message.setReplyMarkup(getBackToMenuKeyboard());
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
+            List<SearchIndex.Match> matches = clientRepository.search(query, SEARCH_RESULTS);
+            if (matches.isEmpty()) {
+                showClientNotFound(chatId, query, flow);
+                return Optional.empty();
+            }
+            if (matches.size() == 1) {
+                Optional<Client> found = clientRepository.findById(matches.get(0).clientId());
+                if (found.isEmpty()) {
+                    showClientNotFound(chatId, query, flow);
                 }
-                userStates.remove(chatId.toString());
-                System.out.println("Клиент не найден: " + phone);
+                return found;
             }
+            showSearchMatches(chatId, query, matches, flow);
+            Log.debug("Найдено несколько клиентов", "query", query, "matches", matches.size());
+
         } catch (SQLException e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка поиска клиента: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (TelegramApiException ex) {
-                throw new RuntimeException(ex);
-            }
-            System.out.println("Ошибка поиска клиента: " + e.getMessage());
-            e.printStackTrace();
+            send(message);
+            Log.error("Ошибка поиска клиента", e, "query", query);
         }
+        return Optional.empty();
+    }
+
+    private void showClientNotFound(Long chatId, String query, ChatState flow) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText("❌ Клиент по запросу «" + query + "» не найден." +
+                (flow == ChatState.SEARCH_FOR_MEETING ? "\nПопробуйте еще раз или создайте нового клиента." : ""));
+        message.setReplyMarkup(getBackToMenuKeyboard());
+        send(message);
+        sessions.getOrCreate(chatId).reset();
+        Log.info("Клиент не найден", "query", query, "flow", flow);
+    }
+
+    // Совпадения поиска кнопками: имя, город и последние цифры телефона
+    private void showSearchMatches(Long chatId, String query, List<SearchIndex.Match> matches, ChatState flow) {
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText("🔎 Найдено по запросу «" + query + "»" +
+                (matches.size() == SEARCH_RESULTS ? " (первые " + SEARCH_RESULTS + ")" : "") +
+                ".\nВыберите клиента или введите запрос точнее:");
+
+        InlineKeyboardMarkup.InlineKeyboardMarkupBuilder keyboard = InlineKeyboardMarkup.builder();
+        for (SearchIndex.Match match : matches) {
+            String phone = match.phone();
+            keyboard.keyboardRow(List.of(InlineKeyboardButton.builder()
+                    .text(match.name() + " · " + match.city() + " · …" + phone.substring(Math.max(0, phone.length() - 4)))
+                    .callbackData(Callback.SEARCH_RESULT.data(flow.ordinal(), match.clientId()))
+                    .build()));
+        }
+        keyboard.keyboardRow(List.of(InlineKeyboardButton.builder()
+                .text("❌ Отмена")
+                .callbackData(Callback.CLIENTS_MENU.data())
+                .build()));
+
+        message.setReplyMarkup(keyboard.build());
+        send(message);
+    }
+
+    // Клиент, выбранный из результатов поиска: карточка того сценария, из которого искали
+    private void selectSearchResult(Long chatId, ChatState flow, int clientId) throws SQLException {
+        Optional<Client> found = clientRepository.findById(clientId);
+        if (found.isEmpty()) {
+            showClientNotFound(chatId, "#" + clientId, flow);
+            return;
+        }
+        switch (flow) {
+            case SEARCH_FOR_MEETING -> showClientForMeeting(chatId, found.get());
+            case SEARCH_FOR_EDIT -> showClientForEdit(chatId, found.get());
+            case SEARCH_FOR_DELETE -> showClientForDelete(chatId, found.get());
+            default -> Log.warn("Неизвестный сценарий поиска", "flow", flow);
+        }
+    }
+
+    // Поиск клиента для назначения звонка
+    private void searchClientForMeeting(Long chatId, String query) {
+        Log.debug("Поиск клиента для звонка", "query", query);
+        findClient(chatId, query, ChatState.SEARCH_FOR_MEETING).ifPresent(client -> showClientForMeeting(chatId, client));
+    }
+
+    // Карточка найденного клиента с предложением назначить звонок
+    private void showClientForMeeting(Long chatId, Client client) {
+        int clientId = client.id();
+        String name = client.name();
+        String city = client.city();
+        String propertyType = client.propertyType();
+
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText("✅ Клиент найден!\n\n" +
+                "👤 Имя: " + name + "\n" +
+                "📱 Телефон: " + client.phone() + "\n" +
+                "🏙️ Город: " + city + "\n" +
+                "🏠 Тип недвижимости: " + propertyType + "\n\n" +
+                "Назначить звонок?");
+
+        InlineKeyboardButton appointBtn = InlineKeyboardButton.builder()
+                .text("📅 Назначить звонок")
+                .callbackData(Callback.SCHEDULE_CLIENT.data(clientId))
+                .build();
+
+        InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
+                .text("❌ Отмена")
+                .callbackData(Callback.MAIN_MENU.data())
+                .build();
+
+        InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
+                .keyboardRow(List.of(appointBtn))
+                .keyboardRow(List.of(cancelBtn))
+                .build();
+
+        message.setReplyMarkup(keyboard);
+        send(message);
+        Log.debug("Клиент найден", "name", name);
     }
 
     // Обновление времени звонка
     private void updateMeetingTime(Long chatId, int clientId, String meetingTime) {
         try {
-            System.out.println("Обновление времени звонка для клиента ID: " + clientId + " на время: " + meetingTime);
-            initializeDatabase();
+            Log.debug("Обновление времени звонка", "clientId", clientId, "meetingTime", meetingTime);
 
-            String clientSql = "SELECT name, phone FROM clients WHERE id = ?";
             String name = "";
             String phone = "";
 
-            try (PreparedStatement pstmt = connection.prepareStatement(clientSql)) {
-                pstmt.setInt(1, clientId);
-                ResultSet rs = pstmt.executeQuery();
-
-                if (rs.next()) {
-                    name = rs.getString("name");
-                    phone = rs.getString("phone");
-                    System.out.println("Найден клиент: " + name + ", телефон: " + phone);
-                }
+            Optional<Client> found = clientRepository.findById(clientId);
+            if (found.isPresent()) {
+                name = found.get().name();
+                phone = found.get().phone();
+                Log.debug("Найден клиент", "name", name, "phone", phone);
             }
 
             if (name.isEmpty()) {
@@ -1311,19 +1494,17 @@ public class Bot extends TelegramLongPollingBot {
                 message.setChatId(chatId.toString());
                 message.setText("❌ Клиент не найден.");
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                execute(message);
+                send(message);
                 return;
             }
 
-            String updateSql = "UPDATE clients SET meeting_time = ? WHERE id = ?";
-            try (PreparedStatement pstmt = connection.prepareStatement(updateSql)) {
-                pstmt.setString(1, meetingTime + ":00");
-                pstmt.setInt(2, clientId);
-                pstmt.executeUpdate();
-                System.out.println("Время звонка обновлено в clients");
-            }
+            clientRepository.updateMeetingTime(clientId, LocalDateTime.parse(meetingTime, formatter), chatId);
+            Log.debug("Время звонка обновлено в clients", "clientId", clientId);
+
+            // Уведомления о прежнем звонке больше не нужны
+            meetingTasks.cancel(clientId);
 
-            scheduleMeetingNotifications(chatId, name, phone, meetingTime);
+            scheduleMeetingNotifications(chatId, clientId, name, phone, meetingTime);
 
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
@@ -1333,126 +1514,162 @@ public class Bot extends TelegramLongPollingBot {
                     "📅 Звонок: " + meetingTime + "\n\n" +
                     "Вы получите уведомления о звонке.");
             message.setReplyMarkup(getBackToMenuKeyboard());
-            execute(message);
+            send(message);
 
-            System.out.println("Звонок успешно назначен для клиента: " + name);
+            Log.info("Звонок назначен", "clientId", clientId, "name", name, "meetingTime", meetingTime);
 
         } catch (Exception e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка при назначении звонка: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("Ошибка при назначении звонка: " + e.getMessage());
-            e.printStackTrace();
+            send(message);
+            Log.error("Ошибка при назначении звонка", e);
         }
     }
 
-    // Показать ближайшие звонки
+    // Первая страница ближайших звонков — новым сообщением
     private void showUpcomingMeetings(Long chatId) {
-        initializeDatabase();
-
-        String sql = "SELECT name, phone, city, property_type, meeting_time " +
-                "FROM clients " +
-                "WHERE meeting_time IS NOT NULL AND meeting_time > NOW() " +
-                "ORDER BY meeting_time ASC " +
-                "LIMIT 5";
-
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery(sql);
-
-            StringBuilder response = new StringBuilder();
-            response.append("📅 БЛИЖАЙШИЕ ЗВОНКИ:\n\n");
-
-            int count = 1;
-            while (rs.next()) {
-                response.append(count).append(". 👤 ").append(rs.getString("name"))
-                        .append("\n   📱 ").append(rs.getString("phone"))
-                        .append("\n   🏙️ ").append(rs.getString("city"))
-                        .append("\n   🏠 ").append(rs.getString("property_type"))
-                        .append("\n   📅 ").append(rs.getTimestamp("meeting_time").toLocalDateTime().format(formatter))
-                        .append("\n   ──────────────\n");
-                count++;
-            }
-
-            if (count == 1) {
-                response.append("❌ Нет запланированных звонков");
-            }
+        try {
+            List<Client> rows = clientRepository.findUpcomingAfter(LocalDateTime.now(), Integer.MAX_VALUE, UPCOMING_PAGE_SIZE + 1);
+            boolean hasNext = rows.size() > UPCOMING_PAGE_SIZE;
+            List<Client> page = hasNext ? rows.subList(0, UPCOMING_PAGE_SIZE) : rows;
 
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
-            message.setText(response.toString());
-
-            InlineKeyboardButton backBtn = InlineKeyboardButton.builder()
-                    .text("🔙 Назад")
-                    .callbackData("назад к спискам")
-                    .build();
+            message.setText(upcomingPageText(page, 0));
+            message.setReplyMarkup(upcomingPageKeyboard(page, 0, false, hasNext));
+            send(message);
 
-            InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
-                    .keyboardRow(List.of(backBtn))
-                    .build();
+        } catch (Exception e) {
+            Log.error("Ошибка загрузки ближайших звонков", e);
+        }
+    }
 
-            message.setReplyMarkup(keyboard);
-            execute(message);
+    // Следующая страница: звонки после последнего показанного; сообщение со списком редактируется
+    private void showUpcomingPageAfter(Long chatId, LocalDateTime time, int clientId, int pageIndex) {
+        try {
+            List<Client> rows = clientRepository.findUpcomingAfter(time, clientId, UPCOMING_PAGE_SIZE + 1);
+            if (rows.isEmpty()) {
+                // Звонки страницы уже прошли или удалены — возвращаемся к началу списка
+                showUpcomingFirstPage(chatId);
+                return;
+            }
+            boolean hasNext = rows.size() > UPCOMING_PAGE_SIZE;
+            List<Client> page = hasNext ? rows.subList(0, UPCOMING_PAGE_SIZE) : rows;
+            replaceMessage(chatId, upcomingPageText(page, pageIndex),
+                    upcomingPageKeyboard(page, pageIndex, pageIndex > 0, hasNext));
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка загрузки ближайших звонков", e);
         }
     }
 
-    // Отправить файл со всеми клиентами
-    private void sendAllClientsFile(Long chatId) {
-        initializeDatabase();
-
+    // Предыдущая страница: ближайшие звонки перед первым показанным
+    private void showUpcomingPageBefore(Long chatId, LocalDateTime time, int clientId, int pageIndex) {
         try {
-            File file = new File("all_clients.txt");
-            FileWriter writer = new FileWriter(file);
+            List<Client> rows = clientRepository.findUpcomingBefore(LocalDateTime.now(), time, clientId, UPCOMING_PAGE_SIZE + 1);
+            if (rows.size() <= UPCOMING_PAGE_SIZE) {
+                // Раньше звонков на полную страницу нет (часть могла пройти) — показываем начало списка
+                showUpcomingFirstPage(chatId);
+                return;
+            }
+            List<Client> page = rows.subList(1, rows.size());
+            int index = Math.max(pageIndex, 1);
+            replaceMessage(chatId, upcomingPageText(page, index), upcomingPageKeyboard(page, index, true, true));
 
-            String sql = "SELECT name, phone, city, property_type, meeting_time, created_at FROM clients ORDER BY created_at DESC";
+        } catch (Exception e) {
+            Log.error("Ошибка загрузки ближайших звонков", e);
+        }
+    }
 
-            try (Statement stmt = connection.createStatement()) {
-                ResultSet rs = stmt.executeQuery(sql);
+    private void showUpcomingFirstPage(Long chatId) throws SQLException {
+        List<Client> rows = clientRepository.findUpcomingAfter(LocalDateTime.now(), Integer.MAX_VALUE, UPCOMING_PAGE_SIZE + 1);
+        boolean hasNext = rows.size() > UPCOMING_PAGE_SIZE;
+        List<Client> page = hasNext ? rows.subList(0, UPCOMING_PAGE_SIZE) : rows;
+        replaceMessage(chatId, upcomingPageText(page, 0), upcomingPageKeyboard(page, 0, false, hasNext));
+    }
 
-                writer.write("СПИСОК ВСЕХ КЛИЕНТОВ\n");
-                writer.write("=".repeat(50) + "\n\n");
+    // Текст страницы ближайших звонков; нумерация сквозная по страницам
+    private String upcomingPageText(List<Client> page, int pageIndex) {
+        StringBuilder response = new StringBuilder();
+        response.append("📅 БЛИЖАЙШИЕ ЗВОНКИ");
+        if (pageIndex > 0 || page.size() == UPCOMING_PAGE_SIZE) {
+            response.append(" (страница ").append(pageIndex + 1).append(")");
+        }
+        response.append(":\n\n");
+
+        int count = pageIndex * UPCOMING_PAGE_SIZE + 1;
+        for (Client client : page) {
+            response.append(count).append(". 👤 ").append(client.name())
+                    .append("\n   📱 ").append(client.phone())
+                    .append("\n   🏙️ ").append(client.city())
+                    .append("\n   🏠 ").append(client.propertyType())
+                    .append("\n   📅 ").append(client.meetingTime().format(formatter))
+                    .append("\n   ──────────────\n");
+            count++;
+        }
 
-                int count = 1;
-                while (rs.next()) {
-                    writer.write(count + ". Имя: " + rs.getString("name") + "\n");
-                    writer.write("   Телефон: " + rs.getString("phone") + "\n");
-                    writer.write("   Город: " + rs.getString("city") + "\n");
-                    writer.write("   Тип недвижимости: " + rs.getString("property_type") + "\n");
+        if (page.isEmpty()) {
+            response.append("❌ Нет запланированных звонков");
+        }
+        return response.toString();
+    }
 
-                    Timestamp meetingTime = rs.getTimestamp("meeting_time");
-                    if (meetingTime != null) {
-                        writer.write("   Звонок: " + meetingTime.toLocalDateTime().format(formatter) + "\n");
-                    }
+    // Кнопки листания несут ключ крайнего звонка страницы (время, id), а не смещение
+    private InlineKeyboardMarkup upcomingPageKeyboard(List<Client> page, int pageIndex, boolean hasPrevious, boolean hasNext) {
+        List<InlineKeyboardButton> paging = new ArrayList<>();
+        if (hasPrevious && !page.isEmpty()) {
+            Client first = page.get(0);
+            paging.add(InlineKeyboardButton.builder()
+                    .text("⬅️ Назад")
+                    .callbackData(Callback.UPCOMING_PREV.data(toEpochSeconds(first.meetingTime()), first.id(), pageIndex - 1))
+                    .build());
+        }
+        if (hasNext && !page.isEmpty()) {
+            Client last = page.get(page.size() - 1);
+            paging.add(InlineKeyboardButton.builder()
+                    .text("Далее ➡️")
+                    .callbackData(Callback.UPCOMING_NEXT.data(toEpochSeconds(last.meetingTime()), last.id(), pageIndex + 1))
+                    .build());
+        }
 
-                    writer.write("   Создан: " + rs.getTimestamp("created_at").toLocalDateTime().format(formatter) + "\n");
-                    writer.write("-".repeat(30) + "\n");
-                    count++;
-                }
+        InlineKeyboardButton backBtn = InlineKeyboardButton.builder()
+                .text("🔙 Назад")
+                .callbackData(Callback.CLIENTS_MENU.data())
+                .build();
 
-                writer.write("\nВсего клиентов: " + (count - 1));
-            }
+        InlineKeyboardMarkup.InlineKeyboardMarkupBuilder keyboard = InlineKeyboardMarkup.builder();
+        if (!paging.isEmpty()) {
+            keyboard.keyboardRow(paging);
+        }
+        return keyboard.keyboardRow(List.of(backBtn)).build();
+    }
 
-            writer.close();
+    // Время звонка в данных кнопки: секунды локального времени без часового пояса
+    private static long toEpochSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime fromEpochSeconds(long seconds) {
+        return LocalDateTime.ofEpochSecond(seconds, 0, ZoneOffset.UTC);
+    }
+
+    // Отправить файл со всеми клиентами
+    private void sendAllClientsFile(Long chatId) {
+        try {
+            ClientExporter.Export export = clientExporter.exportAllClients(getExportFormat(chatId));
 
             SendDocument document = new SendDocument();
             document.setChatId(chatId.toString());
-            document.setDocument(new InputFile(file));
+            document.setDocument(new InputFile(export.file().toFile(), export.fileName()));
             document.setCaption("📄 Список всех клиентов");
 
-            execute(document);
-
-            file.delete();
+            // Файл удаляется после того, как очередь отправит его
+            sendDocument(document).whenComplete((sent, error) -> export.delete());
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка выгрузки всех клиентов", e);
         }
     }
 
@@ -1462,415 +1679,219 @@ public class Bot extends TelegramLongPollingBot {
         message.setChatId(chatId.toString());
         message.setText("Выберите тип недвижимости для фильтрации:");
 
-        InlineKeyboardButton studioBtn = InlineKeyboardButton.builder()
-                .text("🏢 Студия")
-                .callbackData("фильтр_тип_студия")
-                .build();
-
-        InlineKeyboardButton oneRoomBtn = InlineKeyboardButton.builder()
-                .text("1️⃣ 1-комнатная")
-                .callbackData("фильтр_тип_1-комнатная")
-                .build();
-
-        InlineKeyboardButton twoRoomBtn = InlineKeyboardButton.builder()
-                .text("2️⃣ 2-комнатная")
-                .callbackData("фильтр_тип_2-комнатная")
-                .build();
-
-        InlineKeyboardButton threeRoomBtn = InlineKeyboardButton.builder()
-                .text("3️⃣ 3-комнатная")
-                .callbackData("фильтр_тип_3-комнатная")
-                .build();
-
-        InlineKeyboardButton houseBtn = InlineKeyboardButton.builder()
-                .text("🏡 Дом")
-                .callbackData("фильтр_тип_дом")
-                .build();
-
         InlineKeyboardButton backBtn = InlineKeyboardButton.builder()
                 .text("🔙 Назад")
-                .callbackData("назад к спискам")
+                .callbackData(Callback.CLIENTS_MENU.data())
                 .build();
 
         InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
-                .keyboardRow(List.of(studioBtn, oneRoomBtn))
-                .keyboardRow(List.of(twoRoomBtn, threeRoomBtn))
-                .keyboardRow(List.of(houseBtn))
+                .keyboard(getPropertyTypeRows(Callback.TYPE_FILTER))
                 .keyboardRow(List.of(backBtn))
                 .build();
 
         message.setReplyMarkup(keyboard);
 
-        try {
-            execute(message);
-        } catch (Exception e) {
-            e.printStackTrace();
-        }
+        send(message);
     }
 
     // Отправить файл с клиентами по типу недвижимости
     private void sendClientsByTypeFile(Long chatId, String propertyType) {
-        initializeDatabase();
-
         try {
-            File file = new File("clients_" + propertyType + ".txt");
-            FileWriter writer = new FileWriter(file);
-
-            String sql = "SELECT name, phone, city, meeting_time, created_at FROM clients WHERE property_type = ? ORDER BY created_at DESC";
-
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, propertyType);
-                ResultSet rs = pstmt.executeQuery();
-
-                writer.write("КЛИЕНТЫ ПО ТИПУ НЕДВИЖИМОСТИ: " + propertyType.toUpperCase() + "\n");
-                writer.write("=".repeat(50) + "\n\n");
-
-                int count = 1;
-                while (rs.next()) {
-                    writer.write(count + ". Имя: " + rs.getString("name") + "\n");
-                    writer.write("   Телефон: " + rs.getString("phone") + "\n");
-                    writer.write("   Город: " + rs.getString("city") + "\n");
-
-                    Timestamp meetingTime = rs.getTimestamp("meeting_time");
-                    if (meetingTime != null) {
-                        writer.write("   Звонок: " + meetingTime.toLocalDateTime().format(formatter) + "\n");
-                    }
-
-                    writer.write("   Создан: " + rs.getTimestamp("created_at").toLocalDateTime().format(formatter) + "\n");
-                    writer.write("-".repeat(30) + "\n");
-                    count++;
-                }
-
-                writer.write("\nВсего клиентов: " + (count - 1));
-            }
-
-            writer.close();
+            ClientExporter.Export export = clientExporter.exportClientsByType(getExportFormat(chatId), propertyType);
 
             SendDocument document = new SendDocument();
             document.setChatId(chatId.toString());
-            document.setDocument(new InputFile(file));
+            document.setDocument(new InputFile(export.file().toFile(), export.fileName()));
             document.setCaption("🏠 Клиенты с типом недвижимости: " + propertyType);
 
-            execute(document);
-
-            file.delete();
+            // Файл удаляется после того, как очередь отправит его
+            sendDocument(document).whenComplete((sent, error) -> export.delete());
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка выгрузки клиентов по типу", e, "propertyType", propertyType);
         }
     }
 
     // Поиск клиента для редактирования
-    private void searchClientForEdit(Long chatId, String phone) {
-        System.out.println("Поиск клиента для редактирования по телефону: " + phone);
-        initializeDatabase();
+    private void searchClientForEdit(Long chatId, String query) {
+        Log.debug("Поиск клиента для редактирования", "query", query);
+        findClient(chatId, query, ChatState.SEARCH_FOR_EDIT).ifPresent(client -> showClientForEdit(chatId, client));
+    }
 
-        String sql = "SELECT id, name, city, property_type FROM clients WHERE phone = ?";
+    // Карточка найденного клиента с выбором параметра для изменения
+    private void showClientForEdit(Long chatId, Client client) {
+        int clientId = client.id();
+        String name = client.name();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            ResultSet rs = pstmt.executeQuery();
+        sessions.getOrCreate(chatId).setEditClientId(clientId);
 
-            if (rs.next()) {
-                int clientId = rs.getInt("id");
-                String name = rs.getString("name");
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText("✅ Клиент найден!\n\n" +
+                "👤 Имя: " + name + "\n" +
+                "📱 Телефон: " + client.phone() + "\n" +
+                "🏙️ Город: " + client.city() + "\n" +
+                "🏠 Тип недвижимости: " + client.propertyType() + "\n\n" +
+                "Выберите параметр для изменения:");
+
+        InlineKeyboardButton nameBtn = InlineKeyboardButton.builder()
+                .text("👤 Имя")
+                .callbackData(Callback.EDIT_FIELD.data(ClientField.NAME.ordinal()))
+                .build();
 
-                userStates.put(chatId.toString() + "_edit_client", String.valueOf(clientId));
+        InlineKeyboardButton phoneBtn = InlineKeyboardButton.builder()
+                .text("📱 Телефон")
+                .callbackData(Callback.EDIT_FIELD.data(ClientField.PHONE.ordinal()))
+                .build();
 
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("✅ Клиент найден!\n\n" +
-                        "👤 Имя: " + name + "\n" +
-                        "📱 Телефон: " + phone + "\n" +
-                        "🏙️ Город: " + rs.getString("city") + "\n" +
-                        "🏠 Тип недвижимости: " + rs.getString("property_type") + "\n\n" +
-                        "Выберите параметр для изменения:");
-
-                InlineKeyboardButton nameBtn = InlineKeyboardButton.builder()
-                        .text("👤 Имя")
-                        .callbackData("изменить_name")
-                        .build();
-
-                InlineKeyboardButton phoneBtn = InlineKeyboardButton.builder()
-                        .text("📱 Телефон")
-                        .callbackData("изменить_phone")
-                        .build();
-
-                InlineKeyboardButton cityBtn = InlineKeyboardButton.builder()
-                        .text("🏙️ Город")
-                        .callbackData("изменить_city")
-                        .build();
-
-                InlineKeyboardButton typeBtn = InlineKeyboardButton.builder()
-                        .text("🏠 Тип недвижимости")
-                        .callbackData("изменить_property_type")
-                        .build();
-
-                InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
-                        .text("❌ Отмена")
-                        .callbackData("назад к спискам")
-                        .build();
-
-                InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
-                        .keyboardRow(List.of(nameBtn))
-                        .keyboardRow(List.of(phoneBtn))
-                        .keyboardRow(List.of(cityBtn))
-                        .keyboardRow(List.of(typeBtn))
-                        .keyboardRow(List.of(cancelBtn))
-                        .build();
-
-                message.setReplyMarkup(keyboard);
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
-                System.out.println("Клиент найден для редактирования: " + name);
+        InlineKeyboardButton cityBtn = InlineKeyboardButton.builder()
+                .text("🏙️ Город")
+                .callbackData(Callback.EDIT_FIELD.data(ClientField.CITY.ordinal()))
+                .build();
 
-            } else {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("❌ Клиент с телефоном " + phone + " не найден.");
-                message.setReplyMarkup(getBackToMenuKeyboard());
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
-                userStates.remove(chatId.toString());
-                System.out.println("Клиент не найден для редактирования: " + phone);
-            }
-        } catch (SQLException e) {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText("❌ Ошибка поиска клиента: " + e.getMessage());
-            message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (TelegramApiException ex) {
-                throw new RuntimeException(ex);
-            }
-            System.out.println("Ошибка поиска клиента для редактирования: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
+        InlineKeyboardButton typeBtn = InlineKeyboardButton.builder()
+                .text("🏠 Тип недвижимости")
+                .callbackData(Callback.EDIT_FIELD.data(ClientField.PROPERTY_TYPE.ordinal()))
+                .build();
 
-    // Обновление параметра клиента
-    private void updateClientParameter(Long chatId, int clientId, String param, String newValue) {
-        initializeDatabase();
+        InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
+                .text("❌ Отмена")
+                .callbackData(Callback.CLIENTS_MENU.data())
+                .build();
 
-        String sql = "UPDATE clients SET " + param + " = ? WHERE id = ?";
+        InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
+                .keyboardRow(List.of(nameBtn))
+                .keyboardRow(List.of(phoneBtn))
+                .keyboardRow(List.of(cityBtn))
+                .keyboardRow(List.of(typeBtn))
+                .keyboardRow(List.of(cancelBtn))
+                .build();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, newValue);
-            pstmt.setInt(2, clientId);
-            int rows = pstmt.executeUpdate();
+        message.setReplyMarkup(keyboard);
+        send(message);
+        Log.debug("Клиент найден для редактирования", "name", name);
+    }
 
-            if (rows > 0) {
+    // Обновление параметра клиента
+    private void updateClientParameter(Long chatId, int clientId, ClientField field, String newValue) {
+        try {
+            if (clientRepository.updateField(clientId, field, newValue)) {
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
                 message.setText("✅ Параметр успешно изменен!\n" +
-                        getParamName(param) + " установлено в: " + newValue);
+                        field.getDisplayName() + " установлено в: " + newValue);
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                execute(message);
-                System.out.println("Параметр " + param + " обновлен для клиента ID: " + clientId);
+                send(message);
+                Log.info("Параметр клиента обновлен", "clientId", clientId, "field", field.getColumn());
             } else {
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
                 message.setText("❌ Ошибка при изменении параметра");
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                execute(message);
+                send(message);
             }
 
+        } catch (SQLIntegrityConstraintViolationException e) {
+            SendMessage message = new SendMessage();
+            message.setChatId(chatId.toString());
+            message.setText("❌ Этот номер телефона уже используется другим клиентом!");
+            message.setReplyMarkup(getBackToMenuKeyboard());
+            send(message);
+            Log.warn("Телефон уже используется, параметр не обновлен", "clientId", clientId);
         } catch (Exception e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка при обновлении данных: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("Ошибка при обновлении параметра: " + e.getMessage());
-            e.printStackTrace();
-        }
-    }
-
-    // Получить человекочитаемое имя параметра
-    private String getParamName(String param) {
-        switch (param) {
-            case "name": return "Имя";
-            case "phone": return "Телефон";
-            case "city": return "Город";
-            case "property_type": return "Тип недвижимости";
-            default: return param;
+            send(message);
+            Log.error("Ошибка при обновлении параметра", e);
         }
     }
 
     // Поиск клиента для удаления
-    private void searchClientForDelete(Long chatId, String phone) {
-        System.out.println("Поиск клиента для удаления по телефону: " + phone);
-        initializeDatabase();
+    private void searchClientForDelete(Long chatId, String query) {
+        Log.debug("Поиск клиента для удаления", "query", query);
+        findClient(chatId, query, ChatState.SEARCH_FOR_DELETE).ifPresent(client -> showClientForDelete(chatId, client));
+    }
 
-        String sql = "SELECT id, name, city, property_type FROM clients WHERE phone = ?";
+    // Карточка найденного клиента с подтверждением удаления
+    private void showClientForDelete(Long chatId, Client client) {
+        int clientId = client.id();
+        String name = client.name();
 
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setString(1, phone);
-            ResultSet rs = pstmt.executeQuery();
+        SendMessage message = new SendMessage();
+        message.setChatId(chatId.toString());
+        message.setText("⚠️ ВЫ УВЕРЕНЫ, ЧТО ХОТИТЕ УДАЛИТЬ КЛИЕНТА?\n\n" +
+                "👤 Имя: " + name + "\n" +
+                "📱 Телефон: " + client.phone() + "\n" +
+                "🏙️ Город: " + client.city() + "\n" +
+                "🏠 Тип недвижимости: " + client.propertyType());
+
+        InlineKeyboardButton deleteBtn = InlineKeyboardButton.builder()
+                .text("✅ Да, удалить")
+                .callbackData(Callback.DELETE_CLIENT.data(clientId))
+                .build();
 
-            if (rs.next()) {
-                int clientId = rs.getInt("id");
-                String name = rs.getString("name");
+        InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
+                .text("❌ Нет, отмена")
+                .callbackData(Callback.CLIENTS_MENU.data())
+                .build();
 
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("⚠️ ВЫ УВЕРЕНЫ, ЧТО ХОТИТЕ УДАЛИТЬ КЛИЕНТА?\n\n" +
-                        "👤 Имя: " + name + "\n" +
-                        "📱 Телефон: " + phone + "\n" +
-                        "🏙️ Город: " + rs.getString("city") + "\n" +
-                        "🏠 Тип недвижимости: " + rs.getString("property_type"));
-
-                InlineKeyboardButton deleteBtn = InlineKeyboardButton.builder()
-                        .text("✅ Да, удалить")
-                        .callbackData("удалить_" + clientId)
-                        .build();
-
-                InlineKeyboardButton cancelBtn = InlineKeyboardButton.builder()
-                        .text("❌ Нет, отмена")
-                        .callbackData("назад к спискам")
-                        .build();
-
-                InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
-                        .keyboardRow(List.of(deleteBtn))
-                        .keyboardRow(List.of(cancelBtn))
-                        .build();
-
-                message.setReplyMarkup(keyboard);
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
-                System.out.println("Клиент найден для удаления: " + name);
+        InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
+                .keyboardRow(List.of(deleteBtn))
+                .keyboardRow(List.of(cancelBtn))
+                .build();
 
-            } else {
-                SendMessage message = new SendMessage();
-                message.setChatId(chatId.toString());
-                message.setText("❌ Клиент с телефоном " + phone + " не найден.");
-                message.setReplyMarkup(getBackToMenuKeyboard());
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
-                userStates.remove(chatId.toString());
-                System.out.println("Клиент не найден для удаления: " + phone);
-            }
-        } catch (SQLException e) {
-            SendMessage message = new SendMessage();
-            message.setChatId(chatId.toString());
-            message.setText("❌ Ошибка поиска клиента: " + e.getMessage());
-            message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (TelegramApiException ex) {
-                throw new RuntimeException(ex);
-            }
-            System.out.println("Ошибка поиска клиента для удаления: " + e.getMessage());
-            e.printStackTrace();
-        }
+        message.setReplyMarkup(keyboard);
+        send(message);
+        Log.debug("Клиент найден для удаления", "name", name);
     }
 
     // Удаление клиента
     private void deleteClient(Long chatId, int clientId) {
-        initializeDatabase();
-
-        String sql = "DELETE FROM clients WHERE id = ?";
-
-        try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-            pstmt.setInt(1, clientId);
-            int rows = pstmt.executeUpdate();
+        try {
+            if (clientRepository.delete(clientId)) {
+                stats.clientRemoved();
+                meetingTasks.cancel(clientId);
 
-            if (rows > 0) {
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
                 message.setText("✅ Клиент успешно удален!");
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
-                System.out.println("Клиент ID: " + clientId + " удален");
+                send(message);
+                Log.info("Клиент удален", "clientId", clientId);
             } else {
                 SendMessage message = new SendMessage();
                 message.setChatId(chatId.toString());
                 message.setText("❌ Клиент не найден для удаления");
                 message.setReplyMarkup(getBackToMenuKeyboard());
-                try {
-                    execute(message);
-                } catch (TelegramApiException e) {
-                    throw new RuntimeException(e);
-                }
+                send(message);
             }
 
-            userStates.remove(chatId.toString());
+            sessions.getOrCreate(chatId).reset();
 
         } catch (SQLException e) {
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
             message.setText("❌ Ошибка при удалении клиента: " + e.getMessage());
             message.setReplyMarkup(getBackToMenuKeyboard());
-            try {
-                execute(message);
-            } catch (Exception ex) {
-                ex.printStackTrace();
-            }
-            System.out.println("Ошибка при удалении клиента: " + e.getMessage());
-            e.printStackTrace();
+            send(message);
+            Log.error("Ошибка при удалении клиента", e);
         }
     }
 
     // Показать статистику
     private void showStatistics(Long chatId) {
-        initializeDatabase();
-
         try {
-            String totalSql = "SELECT COUNT(*) as total FROM clients";
-            int totalClients = 0;
-            try (Statement stmt = connection.createStatement()) {
-                ResultSet rs = stmt.executeQuery(totalSql);
-                if (rs.next()) {
-                    totalClients = rs.getInt("total");
-                }
-            }
-
-            String successSql = "SELECT COUNT(*) as success FROM deals WHERE result = 'совершена'";
-            int successDeals = 0;
-            try (Statement stmt = connection.createStatement()) {
-                ResultSet rs = stmt.executeQuery(successSql);
-                if (rs.next()) {
-                    successDeals = rs.getInt("success");
-                }
-            }
-
-            String refuseSql = "SELECT COUNT(*) as refuse FROM deals WHERE result = 'отказ'";
-            int refuseDeals = 0;
-            try (Statement stmt = connection.createStatement()) {
-                ResultSet rs = stmt.executeQuery(refuseSql);
-                if (rs.next()) {
-                    refuseDeals = rs.getInt("refuse");
-                }
-            }
+            // Значения берутся из счетчиков в памяти, без запросов к БД
+            StatsCounters.Snapshot snapshot = stats.snapshot();
+            long totalClients = snapshot.clients();
+            long successDeals = snapshot.successDeals();
+            long refuseDeals = snapshot.refusedDeals();
 
             // Расчет конверсии на основе количества сделок
-            int totalDeals = successDeals + refuseDeals;
-            double conversionRate = 0.0;
-
-            if (totalDeals > 0) {
-                conversionRate = (successDeals * 100.0) / totalDeals;
-            }
+            long totalDeals = snapshot.totalDeals();
+            double conversionRate = snapshot.conversionRate();
 
             SendMessage message = new SendMessage();
             message.setChatId(chatId.toString());
@@ -1884,17 +1905,17 @@ public class Bot extends TelegramLongPollingBot {
 
             InlineKeyboardButton successListBtn = InlineKeyboardButton.builder()
                     .text("✅ Список совершенных сделок")
-                    .callbackData("список сделок")
+                    .callbackData(Callback.SUCCESS_DEALS.data())
                     .build();
 
             InlineKeyboardButton refuseListBtn = InlineKeyboardButton.builder()
                     .text("❌ Список отказанных сделок")
-                    .callbackData("список отказов")
+                    .callbackData(Callback.REFUSED_DEALS.data())
                     .build();
 
             InlineKeyboardButton backBtn = InlineKeyboardButton.builder()
                     .text("🔙 Назад")
-                    .callbackData("назад к спискам")
+                    .callbackData(Callback.CLIENTS_MENU.data())
                     .build();
 
             InlineKeyboardMarkup keyboard = InlineKeyboardMarkup.builder()
@@ -1904,60 +1925,28 @@ public class Bot extends TelegramLongPollingBot {
                     .build();
 
             message.setReplyMarkup(keyboard);
-            execute(message);
+            send(message);
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка показа статистики", e);
         }
     }
 
     // Отправить файл с завершенными сделками
     private void sendCompletedDealsFile(Long chatId, String resultType) {
-        initializeDatabase();
-
         try {
-            String fileName = resultType.equals("совершена") ? "success_deals.txt" : "refused_deals.txt";
-            String title = resultType.equals("совершена") ? "СОВЕРШЕННЫЕ СДЕЛКИ" : "ОТКАЗАННЫЕ СДЕЛКИ";
-
-            File file = new File(fileName);
-            FileWriter writer = new FileWriter(file);
-
-            String sql = "SELECT name, phone, city, property_type, deal_date FROM deals WHERE result = ? ORDER BY deal_date DESC";
-
-            try (PreparedStatement pstmt = connection.prepareStatement(sql)) {
-                pstmt.setString(1, resultType);
-                ResultSet rs = pstmt.executeQuery();
-
-                writer.write(title + "\n");
-                writer.write("=".repeat(50) + "\n\n");
-
-                int count = 1;
-                while (rs.next()) {
-                    writer.write(count + ". Имя: " + rs.getString("name") + "\n");
-                    writer.write("   Телефон: " + rs.getString("phone") + "\n");
-                    writer.write("   Город: " + rs.getString("city") + "\n");
-                    writer.write("   Тип недвижимости: " + rs.getString("property_type") + "\n");
-                    writer.write("   Дата сделки: " + rs.getTimestamp("deal_date").toLocalDateTime().format(formatter) + "\n");
-                    writer.write("-".repeat(30) + "\n");
-                    count++;
-                }
-
-                writer.write("\nВсего сделок: " + (count - 1));
-            }
-
-            writer.close();
+            ClientExporter.Export export = clientExporter.exportDeals(getExportFormat(chatId), resultType);
 
             SendDocument document = new SendDocument();
             document.setChatId(chatId.toString());
-            document.setDocument(new InputFile(file));
+            document.setDocument(new InputFile(export.file().toFile(), export.fileName()));
             document.setCaption(resultType.equals("совершена") ? "✅ Список совершенных сделок" : "❌ Список отказанных сделок");
 
-            execute(document);
-
-            file.delete();
+            // Файл удаляется после того, как очередь отправит его
+            sendDocument(document).whenComplete((sent, error) -> export.delete());
 
         } catch (Exception e) {
-            e.printStackTrace();
+            Log.error("Ошибка выгрузки сделок", e, "result", resultType);
         }
     }
 
@@ -0,0 +1,39 @@
+package models;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.OptionalLong;
+
+// Служебные значения бота в таблице bot_state (например, последнее обработанное обновление)
+public class BotStateRepository {
+
+    private static final String FIND = "SELECT value FROM bot_state WHERE name = ?";
+    private static final String SAVE = "INSERT INTO bot_state (name, value) VALUES (?, ?) " +
+            "ON DUPLICATE KEY UPDATE value = VALUES(value)";
+
+    private final ConnectionPool pool;
+
+    public BotStateRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    public OptionalLong find(String name) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(FIND);
+            statement.setString(1, name);
+            try (ResultSet rs = statement.executeQuery()) {
+                return rs.next() ? OptionalLong.of(rs.getLong(1)) : OptionalLong.empty();
+            }
+        }
+    }
+
+    public void save(String name, long value) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(SAVE);
+            statement.setString(1, name);
+            statement.setLong(2, value);
+            statement.executeUpdate();
+        }
+    }
+}
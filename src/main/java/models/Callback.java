@@ -0,0 +1,113 @@
+package models;
+
+// Действия кнопок. Данные кнопки: код действия (порядковый номер одним символом base36)
+// и аргументы в base36 через точку, например "j.1.2t" — несколько байт вместо кириллических строк.
+// Число аргументов у каждого действия свое; данные с другим числом аргументов не разбираются
+public enum Callback {
+    MAIN_MENU(0),         // Главное меню
+    CLIENTS_MENU(0),      // Работа с клиентами
+    ADD_CLIENT(0),        // Добавить клиента
+    SCHEDULE_SEARCH(0),   // Назначить звонок: поиск клиента
+    SCHEDULE_CLIENT(1),   // Назначить звонок клиенту (id клиента)
+    CREATE_TYPE(1),       // Тип недвижимости нового клиента (тип)
+    POSTPONE(1),          // Отложить звонок (id клиента)
+    POSTPONE_DAYS(0),
+    POSTPONE_HOURS(0),
+    POSTPONE_MINUTES(0),
+    COMPLETE(1),          // Завершить звонок (id клиента)
+    DEAL_RESULT(2),       // Результат сделки (id клиента, 0 — совершена, 1 — отказ)
+    UPCOMING(0),          // Ближайшие звонки
+    ALL_CLIENTS(0),       // Файл со всеми клиентами
+    EXPORT_FORMAT(0),     // Переключить формат выгрузки
+    TYPE_LIST(0),         // Выбор типа для списка
+    TYPE_FILTER(1),       // Файл с клиентами по типу (тип)
+    EDIT_SEARCH(0),       // Изменить данные: поиск клиента
+    EDIT_FIELD(1),        // Изменить параметр (параметр ClientField)
+    EDIT_TYPE(2),         // Новый тип недвижимости (тип, id клиента)
+    DELETE_SEARCH(0),     // Удалить клиента: поиск клиента
+    DELETE_CLIENT(1),     // Удалить клиента (id клиента)
+    STATISTICS(0),        // Статистика
+    SUCCESS_DEALS(0),     // Файл с совершенными сделками
+    REFUSED_DEALS(0),     // Файл с отказами
+    // Новые действия добавляются в конец, чтобы коды кнопок в уже отправленных сообщениях не сдвигались
+    UPCOMING_NEXT(3),     // Следующая страница ближайших звонков (время и id последнего звонка страницы, номер страницы)
+    UPCOMING_PREV(3),     // Предыдущая страница ближайших звонков (время и id первого звонка страницы, номер страницы)
+    SEARCH_RESULT(2),     // Клиент из результатов поиска (сценарий поиска ChatState, id клиента)
+    IMPORT_CLIENTS(0);    // Загрузить клиентов из файла CSV
+
+    private static final Callback[] VALUES = values();
+    private static final char SEPARATOR = '.';
+
+    // Код действия — одна цифра base36
+    static {
+        if (VALUES.length > Character.MAX_RADIX) {
+            throw new ExceptionInInitializerError("Действий кнопок больше " + Character.MAX_RADIX
+                    + ": код действия не помещается в один символ");
+        }
+    }
+
+    private final int argCount;
+
+    Callback(int argCount) {
+        this.argCount = argCount;
+    }
+
+    // Данные кнопки с аргументами
+    public String data(long... args) {
+        StringBuilder builder = new StringBuilder(1 + args.length * 8);
+        builder.append(Character.forDigit(ordinal(), Character.MAX_RADIX));
+        for (long arg : args) {
+            builder.append(SEPARATOR).append(Long.toString(arg, Character.MAX_RADIX));
+        }
+        return builder.toString();
+    }
+
+    // Разбор данных кнопки; null, если данные не в этом формате (например, кнопка старой версии бота)
+    public static Command decode(String data) {
+        if (data == null || data.isEmpty()) {
+            return null;
+        }
+        int code = Character.digit(data.charAt(0), Character.MAX_RADIX);
+        if (code < 0 || code >= VALUES.length || (data.length() > 1 && data.charAt(1) != SEPARATOR)) {
+            return null;
+        }
+
+        int count = 0;
+        for (int i = 1; i < data.length(); i++) {
+            if (data.charAt(i) == SEPARATOR) {
+                count++;
+            }
+        }
+        Callback action = VALUES[code];
+        if (count != action.argCount) {
+            return null;
+        }
+        long[] args = new long[count];
+        try {
+            int start = 2;
+            for (int i = 0; i < count; i++) {
+                int end = data.indexOf(SEPARATOR, start);
+                if (end < 0) {
+                    end = data.length();
+                }
+                args[i] = Long.parseLong(data, start, end, Character.MAX_RADIX);
+                start = end + 1;
+            }
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        return new Command(action, args);
+    }
+
+    // Разобранное нажатие кнопки
+    public record Command(Callback action, long[] args) {
+
+        public long arg(int index) {
+            return args[index];
+        }
+
+        public int intArg(int index) {
+            return Math.toIntExact(args[index]);
+        }
+    }
+}
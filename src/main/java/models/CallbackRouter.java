@@ -0,0 +1,44 @@
+package models;
+
+// Таблица обработчиков кнопок, индексированная кодом действия: выбор обработчика — одно обращение к массиву.
+// Время обработчика каждого действия пишется в метрики, имя действия — в маршрут записей журнала
+public class CallbackRouter {
+
+    private static final Metrics.Family<Metrics.Histogram> LATENCY = Metrics.global()
+            .histogram("bot_callback_duration_seconds", "Обработка нажатия кнопки по действию", "route");
+
+    // Обработчик нажатия кнопки
+    @FunctionalInterface
+    public interface Handler {
+        void handle(Long chatId, Callback.Command command) throws Exception;
+    }
+
+    private final Handler[] routes = new Handler[Callback.values().length];
+    private final Metrics.Histogram[] timings = new Metrics.Histogram[Callback.values().length];
+
+    public CallbackRouter on(Callback action, Handler handler) {
+        routes[action.ordinal()] = handler;
+        timings[action.ordinal()] = LATENCY.labels(action.name());
+        return this;
+    }
+
+    // Передать нажатие обработчику; false, если данные не распознаны или обработчика нет
+    public boolean route(Long chatId, String data) throws Exception {
+        Callback.Command command = Callback.decode(data);
+        if (command == null) {
+            return false;
+        }
+        Handler handler = routes[command.action().ordinal()];
+        if (handler == null) {
+            return false;
+        }
+        Log.route(command.action().name());
+        long start = System.nanoTime();
+        try {
+            handler.handle(chatId, command);
+        } finally {
+            timings[command.action().ordinal()].observeSince(start);
+        }
+        return true;
+    }
+}
@@ -0,0 +1,20 @@
+package models;
+
+// Состояние диалога в чате: какой ввод бот ожидает следующим
+public enum ChatState {
+    AWAITING_NAME,            // Новый клиент: имя
+    AWAITING_PHONE,           // Новый клиент: телефон
+    AWAITING_CITY,            // Новый клиент: город
+    AWAITING_MEETING_TIME,    // Новый клиент: дата и время звонка
+    SEARCH_FOR_MEETING,       // Телефон клиента для назначения звонка
+    SEARCH_FOR_EDIT,          // Телефон клиента для изменения
+    SEARCH_FOR_DELETE,        // Телефон клиента для удаления
+    EDIT_NAME,                // Новое имя клиента
+    EDIT_PHONE,               // Новый телефон клиента
+    EDIT_CITY,                // Новый город клиента
+    POSTPONE_DAYS,            // Перенос звонка на дни
+    POSTPONE_HOURS,           // Перенос звонка на часы
+    POSTPONE_MINUTES,         // Перенос звонка на минуты
+    RESCHEDULE_MEETING,       // Новое время звонка существующему клиенту
+    AWAITING_IMPORT_FILE      // Файл CSV с клиентами для импорта
+}
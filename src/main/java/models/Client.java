@@ -0,0 +1,8 @@
+package models;
+
+import java.time.LocalDateTime;
+
+// Клиент из таблицы clients
+public record Client(int id, String name, String phone, String city, String propertyType,
+                     LocalDateTime meetingTime, LocalDateTime createdAt) {
+}
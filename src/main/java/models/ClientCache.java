@@ -0,0 +1,95 @@
+package models;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// Кэш записей клиентов по ID и телефону с вытеснением давно не использованных (LRU).
+// Записи, прочитанные из БД до инвалидации, в кэш не попадают (проверка по поколению)
+public class ClientCache {
+
+    private static final Metrics.Family<Metrics.Counter> LOOKUPS = Metrics.global()
+            .counter("bot_client_cache_lookups_total", "Обращения к кэшу клиентов по результату: hit, miss", "result");
+    private static final Metrics.Counter HITS = LOOKUPS.labels("hit");
+    private static final Metrics.Counter MISSES = LOOKUPS.labels("miss");
+
+    private final int maxSize;
+    private final LinkedHashMap<Integer, Client> byId;
+    private final Map<String, Integer> idByPhone = new HashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private long generation; // Увеличивается при каждой инвалидации
+
+    public ClientCache(int maxSize) {
+        this.maxSize = maxSize;
+        this.byId = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public synchronized Client getById(int id) {
+        return record(byId.get(id));
+    }
+
+    public synchronized Client getByPhone(String phone) {
+        Integer id = idByPhone.get(phone);
+        return record(id != null ? byId.get(id) : null);
+    }
+
+    // Поколение кэша: снимается перед чтением из БД и передается в put
+    public synchronized long generation() {
+        return generation;
+    }
+
+    // Положить запись, прочитанную из БД; пропускается, если с начала чтения была инвалидация
+    public synchronized void put(Client client, long readGeneration) {
+        if (readGeneration != generation) {
+            return;
+        }
+        Client previous = byId.put(client.id(), client);
+        if (previous != null && !previous.phone().equals(client.phone())) {
+            idByPhone.remove(previous.phone(), previous.id());
+        }
+        idByPhone.put(client.phone(), client.id());
+
+        if (byId.size() > maxSize) {
+            Map.Entry<Integer, Client> eldest = byId.entrySet().iterator().next();
+            byId.remove(eldest.getKey());
+            idByPhone.remove(eldest.getValue().phone(), eldest.getKey());
+        }
+    }
+
+    // Удалить запись клиента после изменения или удаления в БД
+    public synchronized void invalidate(int id) {
+        generation++;
+        Client removed = byId.remove(id);
+        if (removed != null) {
+            idByPhone.remove(removed.phone(), id);
+        }
+    }
+
+    public Stats getStats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long total = hitCount + missCount;
+        int size;
+        synchronized (this) {
+            size = byId.size();
+        }
+        return new Stats(size, maxSize, hitCount, missCount, total == 0 ? 0.0 : hitCount * 100.0 / total);
+    }
+
+    private Client record(Client client) {
+        if (client != null) {
+            hits.increment();
+            HITS.increment();
+        } else {
+            misses.increment();
+            MISSES.increment();
+        }
+        return client;
+    }
+
+    // Снимок статистики кэша
+    public record Stats(int size, int maxSize, long hits, long misses, double hitRatePercent) {
+    }
+}
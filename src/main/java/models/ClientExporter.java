@@ -0,0 +1,106 @@
+package models;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.List;
+
+// Потоковая выгрузка клиентов и сделок: строки читаются из БД порциями через курсор
+// и за один проход пишутся в отдельный временный файл для каждого запроса
+public class ClientExporter {
+
+    private static final RowWriter.Column NAME = new RowWriter.Column("Имя", false);
+    private static final RowWriter.Column PHONE = new RowWriter.Column("Телефон", false);
+    private static final RowWriter.Column CITY = new RowWriter.Column("Город", false);
+    private static final RowWriter.Column PROPERTY_TYPE = new RowWriter.Column("Тип недвижимости", false);
+    private static final RowWriter.Column MEETING_TIME = new RowWriter.Column("Звонок", true);
+    private static final RowWriter.Column CREATED_AT = new RowWriter.Column("Создан", true);
+    private static final RowWriter.Column DEAL_DATE = new RowWriter.Column("Дата сделки", true);
+
+    private static final List<RowWriter.Column> ALL_CLIENTS_COLUMNS = List.of(NAME, PHONE, CITY, PROPERTY_TYPE, MEETING_TIME, CREATED_AT);
+    private static final List<RowWriter.Column> CLIENTS_BY_TYPE_COLUMNS = List.of(NAME, PHONE, CITY, MEETING_TIME, CREATED_AT);
+    private static final List<RowWriter.Column> DEALS_COLUMNS = List.of(NAME, PHONE, CITY, PROPERTY_TYPE, DEAL_DATE);
+
+    private static final String ALL_CLIENTS_SQL = "SELECT name, phone, city, property_type, meeting_time, created_at FROM clients ORDER BY created_at DESC";
+    private static final String CLIENTS_BY_TYPE_SQL = "SELECT name, phone, city, meeting_time, created_at FROM clients WHERE property_type = ? ORDER BY created_at DESC";
+    private static final String DEALS_SQL = "SELECT name, phone, city, property_type, deal_date FROM deals WHERE result = ? ORDER BY deal_date DESC";
+
+    private final ConnectionPool pool;
+
+    public ClientExporter(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // Готовый файл выгрузки: временный путь и имя, под которым файл увидит пользователь
+    public record Export(Path file, String fileName) {
+
+        public void delete() {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                Log.warn("Не удалось удалить файл выгрузки", e, "file", file);
+            }
+        }
+    }
+
+    public Export exportAllClients(ExportFormat format) throws SQLException, IOException {
+        return export(format, "all_clients", "СПИСОК ВСЕХ КЛИЕНТОВ", "Всего клиентов",
+                ALL_CLIENTS_COLUMNS, ALL_CLIENTS_SQL, null);
+    }
+
+    public Export exportClientsByType(ExportFormat format, String propertyType) throws SQLException, IOException {
+        return export(format, "clients_" + propertyType, "КЛИЕНТЫ ПО ТИПУ НЕДВИЖИМОСТИ: " + propertyType.toUpperCase(), "Всего клиентов",
+                CLIENTS_BY_TYPE_COLUMNS, CLIENTS_BY_TYPE_SQL, propertyType);
+    }
+
+    public Export exportDeals(ExportFormat format, String resultType) throws SQLException, IOException {
+        boolean success = resultType.equals("совершена");
+        return export(format, success ? "success_deals" : "refused_deals", success ? "СОВЕРШЕННЫЕ СДЕЛКИ" : "ОТКАЗАННЫЕ СДЕЛКИ", "Всего сделок",
+                DEALS_COLUMNS, DEALS_SQL, resultType);
+    }
+
+    // Выполнить запрос с курсорной выборкой и записать результат в новый временный файл
+    private Export export(ExportFormat format, String baseName, String title, String totalLabel,
+                          List<RowWriter.Column> columns, String sql, String parameter) throws SQLException, IOException {
+        Path file = Files.createTempFile(baseName + "_", format.getExtension());
+
+        try (PooledConnection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement(sql);
+             OutputStream out = Files.newOutputStream(file);
+             RowWriter writer = format.open(out)) {
+            statement.setFetchSize(ClientRepository.STREAM_FETCH_SIZE);
+            if (parameter != null) {
+                statement.setString(1, parameter);
+            }
+
+            try (ResultSet rs = statement.executeQuery()) {
+                writer.begin(title, columns);
+
+                int count = 0;
+                while (rs.next()) {
+                    writer.beginRow(++count);
+                    for (int i = 0; i < columns.size(); i++) {
+                        RowWriter.Column column = columns.get(i);
+                        if (column.time()) {
+                            writer.time(column, rs.getTimestamp(i + 1));
+                        } else {
+                            writer.text(column, rs.getString(i + 1));
+                        }
+                    }
+                    writer.endRow();
+                }
+
+                writer.finish(totalLabel, count);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            Files.deleteIfExists(file);
+            throw e;
+        }
+
+        return new Export(file, baseName + format.getExtension());
+    }
+}
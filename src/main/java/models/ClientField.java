@@ -0,0 +1,31 @@
+package models;
+
+// Изменяемые параметры клиента; SQL для каждого параметра фиксирован заранее
+public enum ClientField {
+    NAME("name", "Имя", "UPDATE clients SET name = ? WHERE id = ?"),
+    PHONE("phone", "Телефон", "UPDATE clients SET phone = ? WHERE id = ?"),
+    CITY("city", "Город", "UPDATE clients SET city = ? WHERE id = ?"),
+    PROPERTY_TYPE("property_type", "Тип недвижимости", "UPDATE clients SET property_type = ? WHERE id = ?");
+
+    private final String column;
+    private final String displayName;
+    private final String updateSql;
+
+    ClientField(String column, String displayName, String updateSql) {
+        this.column = column;
+        this.displayName = displayName;
+        this.updateSql = updateSql;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    String getUpdateSql() {
+        return updateSql;
+    }
+}
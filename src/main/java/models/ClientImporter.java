@@ -0,0 +1,287 @@
+package models;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+// Импорт клиентов из CSV. Файл читается потоково, каждая строка проверяется по тем же правилам, что и ввод
+// в диалоге (телефон 8XXXXXXXXXX и не занят, звонок не в прошлом); занятость телефона проверяется по индексу
+// в памяти, а не запросом на строку. Строки сохраняются пачками по BATCH_SIZE: каждая пачка — отдельная транзакция
+// из многострочных INSERT, поэтому импорт в целом не атомарен — пачки, сохраненные до ошибки, остаются в БД.
+// Если телефон успели занять за время импорта, построчно повторяется только INSERT с этим телефоном.
+// Колонки: имя, телефон, город, тип недвижимости, звонок (ГГГГ-ММ-ДД ЧЧ:ММ, можно не заполнять) — в этом порядке
+// или в любом, если первая строка — заголовки, как в выгрузке CSV (лишние колонки пропускаются).
+// Кодировка — UTF-8 или Windows-1251 (в ней Excel сохраняет «CSV (разделители — запятые)»)
+public class ClientImporter {
+
+    static final int BATCH_SIZE = 2000; // Строк в одной транзакции
+    private static final int MAX_PROBLEMS = 20; // Описаний проблемных строк в отчете
+    private static final int MAX_QUOTED_LENGTH = 30; // Значение из файла в описании проблемы (отчет — одно сообщение)
+    private static final int MAX_TEXT_LENGTH = 100; // Имя и город (VARCHAR(100) в таблице clients)
+    private static final int CHARSET_PROBE = 64 * 1024; // Начало файла, по которому определяется кодировка
+    private static final Pattern PHONE = Pattern.compile("8\\d{10}");
+    private static final DateTimeFormatter MEETING_TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    private static final Map<String, PropertyType> PROPERTY_TYPES = new HashMap<>();
+
+    private static final Metrics.Family<Metrics.Counter> ROWS = Metrics.global()
+            .counter("bot_import_rows_total", "Строки импорта клиентов по результату: imported, duplicate, invalid", "outcome");
+
+    static {
+        for (PropertyType type : PropertyType.values()) {
+            PROPERTY_TYPES.put(type.getValue(), type);
+        }
+    }
+
+    // Колонки файла с заголовками, как в выгрузке
+    private enum Column {
+        NAME("Имя", true),
+        PHONE("Телефон", true),
+        CITY("Город", true),
+        PROPERTY_TYPE("Тип недвижимости", true),
+        MEETING_TIME("Звонок", false);
+
+        private final String label;
+        private final boolean required;
+
+        Column(String label, boolean required) {
+            this.label = label;
+            this.required = required;
+        }
+    }
+
+    private final ClientRepository clients;
+
+    public ClientImporter(ClientRepository clients) {
+        this.clients = clients;
+    }
+
+    // Итог импорта: добавлено клиентов, пропущено строк-дубликатов и строк с ошибками, описания первых
+    // проблемных строк и звонки добавленных клиентов (для уведомлений).
+    // interrupted — импорт остановлен ошибкой чтения файла или БД; сохраненные до нее пачки остаются в БД
+    public record Report(int imported, int duplicates, int invalid, List<String> problems,
+                         List<Reminder> meetings, boolean interrupted) {
+
+        public int skipped() {
+            return duplicates + invalid;
+        }
+    }
+
+    // Импортировать клиентов из файла; уведомления о звонках получит чат chatId
+    public Report importCsv(InputStream in, long chatId) {
+        Import state = new Import(chatId);
+        try (BufferedInputStream buffered = new BufferedInputStream(in, CHARSET_PROBE);
+             CsvRowReader reader = new CsvRowReader(new InputStreamReader(buffered, detectCharset(buffered)))) {
+            state.run(reader);
+        } catch (IOException | SQLException e) {
+            Log.error("Импорт клиентов прерван", e, "imported", state.imported);
+            state.interrupted = true;
+        }
+        return state.report();
+    }
+
+    // UTF-8, если начало файла в ней корректно (в том числе с BOM), иначе Windows-1251
+    private static Charset detectCharset(BufferedInputStream in) throws IOException {
+        in.mark(CHARSET_PROBE);
+        byte[] probe = in.readNBytes(CHARSET_PROBE);
+        in.reset();
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        boolean wholeFile = probe.length < CHARSET_PROBE; // Иначе последний символ мог обрезаться на границе
+        return decoder.decode(ByteBuffer.wrap(probe), CharBuffer.allocate(probe.length), wholeFile).isError()
+                ? WINDOWS_1251 : StandardCharsets.UTF_8;
+    }
+
+    // Состояние одного импорта
+    private final class Import {
+        private final long chatId;
+        private final List<ClientRepository.NewClient> batch = new ArrayList<>(BATCH_SIZE);
+        private final int[] batchLines = new int[BATCH_SIZE];
+        private final PhoneIndex seenPhones = new PhoneIndex(); // Телефон -> строка файла, где он встретился впервые
+        private final List<String> problems = new ArrayList<>();
+        private final List<Reminder> meetings = new ArrayList<>();
+        private final LocalDateTime now = LocalDateTime.now();
+        private int imported;
+        private int duplicates;
+        private int invalid;
+        private boolean interrupted;
+
+        private Import(long chatId) {
+            this.chatId = chatId;
+        }
+
+        private void run(CsvRowReader reader) throws IOException, SQLException {
+            List<String> values = reader.next();
+            if (values == null) {
+                return;
+            }
+            int[] positions = headerPositions(values);
+            if (positions != null) {
+                List<String> missing = new ArrayList<>();
+                for (Column column : Column.values()) {
+                    if (column.required && positions[column.ordinal()] < 0) {
+                        missing.add("«" + column.label + "»");
+                    }
+                }
+                if (!missing.isEmpty()) {
+                    problem(reader.line(), "в заголовке нет колонок " + String.join(", ", missing));
+                    invalid++;
+                    return;
+                }
+                values = reader.next();
+            } else {
+                positions = new int[Column.values().length];
+                Arrays.setAll(positions, i -> i);
+            }
+
+            for (; values != null; values = reader.next()) {
+                add(reader.line(), values, positions);
+                if (batch.size() == BATCH_SIZE) {
+                    flush();
+                }
+            }
+            flush();
+        }
+
+        // Проверить строку и добавить ее в текущую пачку
+        private void add(int line, List<String> values, int[] positions) {
+            String name = value(values, positions, Column.NAME);
+            String phone = value(values, positions, Column.PHONE);
+            String city = value(values, positions, Column.CITY);
+            String type = value(values, positions, Column.PROPERTY_TYPE);
+            String time = value(values, positions, Column.MEETING_TIME);
+
+            String error = null;
+            PropertyType propertyType = PROPERTY_TYPES.get(type.toLowerCase(Locale.ROOT));
+            LocalDateTime meetingTime = null;
+            if (name.isEmpty() || name.length() > MAX_TEXT_LENGTH) {
+                error = name.isEmpty() ? "не указано имя" : "имя длиннее " + MAX_TEXT_LENGTH + " символов";
+            } else if (!PHONE.matcher(phone).matches()) {
+                error = "неверный телефон " + quoted(phone) + " (нужен формат 81234567890)";
+            } else if (city.isEmpty() || city.length() > MAX_TEXT_LENGTH) {
+                error = city.isEmpty() ? "не указан город" : "город длиннее " + MAX_TEXT_LENGTH + " символов";
+            } else if (propertyType == null) {
+                error = "неизвестный тип недвижимости " + quoted(type);
+            } else if (!time.isEmpty()) {
+                try {
+                    meetingTime = LocalDateTime.parse(time, MEETING_TIME);
+                    if (meetingTime.isBefore(now)) {
+                        error = "дата звонка " + quoted(time) + " в прошлом";
+                    }
+                } catch (DateTimeParseException e) {
+                    error = "неверная дата звонка " + quoted(time) + " (нужен формат ГГГГ-ММ-ДД ЧЧ:ММ)";
+                }
+            }
+            if (error != null) {
+                problem(line, error);
+                invalid++;
+                ROWS.labels("invalid").increment();
+                return;
+            }
+
+            long key = PhoneIndex.toKey(phone);
+            int firstLine = seenPhones.get(key);
+            if (firstLine != PhoneIndex.NOT_FOUND) {
+                duplicate(line, "телефон " + phone + " уже был в строке " + firstLine);
+                return;
+            }
+            seenPhones.put(key, line);
+            if (isPhoneTaken(phone)) {
+                duplicate(line, "телефон " + phone + " уже есть в базе");
+                return;
+            }
+
+            batchLines[batch.size()] = line;
+            batch.add(new ClientRepository.NewClient(name, phone, city, propertyType.getValue(), meetingTime));
+        }
+
+        // Сохранить пачку одной транзакцией; телефоны, занятые за время импорта, считаются дубликатами
+        private void flush() throws SQLException {
+            if (batch.isEmpty()) {
+                return;
+            }
+            int[] ids = clients.insertAll(batch, chatId);
+            for (int i = 0; i < ids.length; i++) {
+                ClientRepository.NewClient client = batch.get(i);
+                if (ids[i] < 0) {
+                    duplicate(batchLines[i], "телефон " + client.phone() + " уже есть в базе");
+                    continue;
+                }
+                imported++;
+                ROWS.labels("imported").increment();
+                if (client.meetingTime() != null) {
+                    meetings.add(new Reminder(ids[i], chatId, client.name(), client.phone(), client.meetingTime(), Reminder.PENDING));
+                }
+            }
+            batch.clear();
+        }
+
+        private boolean isPhoneTaken(String phone) {
+            try {
+                return clients.isPhoneTaken(phone);
+            } catch (SQLException e) {
+                return false; // Проверит уникальность в БД при вставке пачки
+            }
+        }
+
+        private void duplicate(int line, String message) {
+            problem(line, message);
+            duplicates++;
+            ROWS.labels("duplicate").increment();
+        }
+
+        private void problem(int line, String message) {
+            if (problems.size() < MAX_PROBLEMS) {
+                problems.add("Строка " + line + ": " + message);
+            }
+        }
+
+        private Report report() {
+            return new Report(imported, duplicates, invalid, List.copyOf(problems), meetings, interrupted);
+        }
+    }
+
+    // Номера колонок по строке заголовков; null, если первая строка — не заголовки, а данные
+    private static int[] headerPositions(List<String> values) {
+        int[] positions = new int[Column.values().length];
+        Arrays.fill(positions, -1);
+        boolean header = false;
+        for (int i = 0; i < values.size(); i++) {
+            for (Column column : Column.values()) {
+                if (column.label.equalsIgnoreCase(values.get(i).trim()) && positions[column.ordinal()] < 0) {
+                    positions[column.ordinal()] = i;
+                    header = true;
+                }
+            }
+        }
+        return header ? positions : null;
+    }
+
+    private static String value(List<String> values, int[] positions, Column column) {
+        int position = positions[column.ordinal()];
+        return position >= 0 && position < values.size() ? values.get(position).trim() : "";
+    }
+
+    private static String quoted(String value) {
+        return "«" + (value.length() > MAX_QUOTED_LENGTH ? value.substring(0, MAX_QUOTED_LENGTH) + "…" : value) + "»";
+    }
+}
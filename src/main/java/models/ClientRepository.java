@@ -0,0 +1,473 @@
+package models;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+// Доступ к таблице clients через подготовленные запросы, кэшируемые в соединениях пула.
+// Поиск по телефону и ID идет через кэш записей; изменения в БД инвалидируют кэш.
+// Занятость телефона проверяется по индексу в памяти, уникальность в БД — последняя защита.
+// Поиск по части имени, города или телефона идет по индексу подстрок в памяти (без LIKE в БД)
+public class ClientRepository {
+
+    private static final String COLUMNS = "id, name, phone, city, property_type, meeting_time, created_at";
+
+    private static final String FIND_BY_PHONE = "SELECT " + COLUMNS + " FROM clients WHERE phone = ?";
+    private static final String FIND_BY_ID = "SELECT " + COLUMNS + " FROM clients WHERE id = ?";
+    // Страницы ближайших звонков по ключу (meeting_time, id) без OFFSET: idx_meeting_time в InnoDB содержит
+    // первичный ключ, поэтому первое условие — диапазон по индексу, а порядок (meeting_time, id) берется из него же.
+    // Условие с OR только отсекает звонки с тем же временем, уже показанные на соседней странице
+    private static final String FIND_UPCOMING_AFTER = "SELECT " + COLUMNS + " FROM clients " +
+            "WHERE meeting_time >= ? AND (meeting_time > ? OR id > ?) " +
+            "ORDER BY meeting_time ASC, id ASC " +
+            "LIMIT ?";
+    private static final String FIND_UPCOMING_BEFORE = "SELECT " + COLUMNS + " FROM clients " +
+            "WHERE meeting_time > ? AND meeting_time <= ? AND (meeting_time < ? OR id < ?) " +
+            "ORDER BY meeting_time DESC, id DESC " +
+            "LIMIT ?";
+    private static final String FIND_ALL_INDEXED = "SELECT id, name, phone, city FROM clients";
+    private static final String COUNT_BY_PHONE = "SELECT COUNT(*) FROM clients WHERE phone = ?";
+    private static final String COUNT_BY_PHONE_EXCLUDING = "SELECT COUNT(*) FROM clients WHERE phone = ? AND id != ?";
+    private static final String INSERT_INTO = "INSERT INTO clients (name, phone, city, property_type, meeting_time, reminder_chat_id, reminder_state) ";
+    private static final String INSERT_ROW = "(?, ?, ?, ?, ?, ?, " + Reminder.PENDING + ")";
+    private static final String INSERT = INSERT_INTO + "VALUES " + INSERT_ROW;
+    static final int ROWS_PER_INSERT = 500; // Строк в одном многострочном INSERT пакетной вставки
+    private static final String INSERT_MANY = insertSql(ROWS_PER_INSERT);
+    private static final String UPDATE_MEETING_TIME = "UPDATE clients SET meeting_time = ?, reminder_chat_id = ?, " +
+            "reminder_state = " + Reminder.PENDING + " WHERE id = ?";
+    private static final String UPDATE_REMINDER_STATE = "UPDATE clients SET reminder_state = ? WHERE id = ? AND meeting_time = ?";
+    private static final String CLOSE_REMINDER = "UPDATE clients SET reminder_state = " + Reminder.DELIVERED + " WHERE id = ?";
+    private static final String CLOSE_REMINDERS_BEFORE = "UPDATE clients SET reminder_state = " + Reminder.DELIVERED + " " +
+            "WHERE meeting_time < ? AND reminder_chat_id IS NOT NULL AND reminder_state < " + Reminder.DELIVERED;
+    // Диапазонный проход по idx_meeting_time: все звонки, начиная с указанного времени
+    private static final String FIND_PENDING_REMINDERS = "SELECT id, name, phone, meeting_time, reminder_chat_id, reminder_state " +
+            "FROM clients " +
+            "WHERE meeting_time >= ? AND reminder_chat_id IS NOT NULL AND reminder_state < " + Reminder.DELIVERED + " " +
+            "ORDER BY meeting_time";
+
+    static final int STREAM_FETCH_SIZE = 1000; // Размер порции при потоковом чтении больших выборок
+    private static final String DELETE = "DELETE FROM clients WHERE id = ?";
+
+    private static final int DEFAULT_CACHE_SIZE = 1000;
+
+    private final ConnectionPool pool;
+    private final ClientCache cache;
+    private final PhoneIndex phoneIndex = new PhoneIndex();
+    private volatile boolean phoneIndexLoaded; // До загрузки индекса телефоны проверяются запросом
+    private final SearchIndex searchIndex = new SearchIndex();
+
+    public ClientRepository(ConnectionPool pool) {
+        this(pool, DEFAULT_CACHE_SIZE);
+    }
+
+    public ClientRepository(ConnectionPool pool, int cacheSize) {
+        this.pool = pool;
+        this.cache = new ClientCache(cacheSize);
+    }
+
+    // Новый клиент для пакетной вставки
+    public record NewClient(String name, String phone, String city, String propertyType, LocalDateTime meetingTime) {
+    }
+
+    public Optional<Client> findByPhone(String phone) throws SQLException {
+        Client cached = cache.getByPhone(phone);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generation = cache.generation();
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(FIND_BY_PHONE);
+            statement.setString(1, phone);
+            return cacheResult(findOne(statement), generation);
+        }
+    }
+
+    public Optional<Client> findById(int id) throws SQLException {
+        Client cached = cache.getById(id);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+
+        long generation = cache.generation();
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(FIND_BY_ID);
+            statement.setInt(1, id);
+            return cacheResult(findOne(statement), generation);
+        }
+    }
+
+    // Статистика кэша записей (попадания и промахи)
+    public ClientCache.Stats getCacheStats() {
+        return cache.getStats();
+    }
+
+    // Ближайшие запланированные звонки
+    // Звонки после позиции (time, id) в порядке (meeting_time, id); первая страница — после (now, Integer.MAX_VALUE)
+    public List<Client> findUpcomingAfter(LocalDateTime time, int id, int limit) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(FIND_UPCOMING_AFTER);
+            statement.setTimestamp(1, Timestamp.valueOf(time));
+            statement.setTimestamp(2, Timestamp.valueOf(time));
+            statement.setInt(3, id);
+            statement.setInt(4, limit);
+            return readClients(statement);
+        }
+    }
+
+    // Звонки после from и до позиции (time, id), ближайшие к позиции; результат в порядке (meeting_time, id)
+    public List<Client> findUpcomingBefore(LocalDateTime from, LocalDateTime time, int id, int limit) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(FIND_UPCOMING_BEFORE);
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            statement.setTimestamp(2, Timestamp.valueOf(time));
+            statement.setTimestamp(3, Timestamp.valueOf(time));
+            statement.setInt(4, id);
+            statement.setInt(5, limit);
+            List<Client> clients = readClients(statement);
+            Collections.reverse(clients);
+            return clients;
+        }
+    }
+
+    private List<Client> readClients(PreparedStatement statement) throws SQLException {
+        List<Client> clients = new ArrayList<>();
+        try (ResultSet rs = statement.executeQuery()) {
+            while (rs.next()) {
+                clients.add(map(rs));
+            }
+        }
+        return clients;
+    }
+
+    // Загрузка индексов телефонов и поиска одним проходом по клиентам (выполняется один раз при запуске)
+    public void loadIndexes() throws SQLException {
+        phoneIndexLoaded = false;
+        phoneIndex.clear();
+        searchIndex.clear();
+        try (PooledConnection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement(FIND_ALL_INDEXED)) {
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt("id");
+                    String phone = rs.getString("phone");
+                    indexPhone(phone, id);
+                    searchIndex.put(id, rs.getString("name"), rs.getString("city"), phone);
+                }
+            }
+        }
+        phoneIndexLoaded = true;
+        Log.info("Индексы клиентов загружены", "phones", phoneIndex.size(), "searchable", searchIndex.size());
+    }
+
+    // Клиенты, у которых имя, город или телефон содержат запрос (не короче SearchIndex.MIN_QUERY_LENGTH символов)
+    public List<SearchIndex.Match> search(String query, int limit) {
+        return searchIndex.search(query, limit);
+    }
+
+    // Меняется при любом изменении клиентов в индексе поиска (для кэширования результатов поиска)
+    public long searchGeneration() {
+        return searchIndex.generation();
+    }
+
+    public boolean isPhoneTaken(String phone) throws SQLException {
+        long key = PhoneIndex.toKey(phone);
+        if (phoneIndexLoaded && key >= 0) {
+            return phoneIndex.get(key) != PhoneIndex.NOT_FOUND;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(COUNT_BY_PHONE);
+            statement.setString(1, phone);
+            return count(statement) > 0;
+        }
+    }
+
+    // Занят ли номер другим клиентом (кроме указанного)
+    public boolean isPhoneTaken(String phone, int excludeClientId) throws SQLException {
+        long key = PhoneIndex.toKey(phone);
+        if (phoneIndexLoaded && key >= 0) {
+            int clientId = phoneIndex.get(key);
+            return clientId != PhoneIndex.NOT_FOUND && clientId != excludeClientId;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(COUNT_BY_PHONE_EXCLUDING);
+            statement.setString(1, phone);
+            statement.setInt(2, excludeClientId);
+            return count(statement) > 0;
+        }
+    }
+
+    // Сохранить нового клиента, возвращает его ID (уведомления о звонке получит чат chatId)
+    public int insert(String name, String phone, String city, String propertyType, LocalDateTime meetingTime, long chatId) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            int id = insertRow(connection, new NewClient(name, phone, city, propertyType, meetingTime), chatId);
+            if (id > 0) {
+                indexPhone(phone, id);
+                searchIndex.put(id, name, city, phone);
+            }
+            return id;
+        }
+    }
+
+    // Сохранить клиентов одной транзакцией, многострочными INSERT по ROWS_PER_INSERT строк; ID в порядке списка.
+    // Если телефон из части успели занять (нарушение уникальности), откатывается только этот INSERT
+    // и его строки сохраняются по одной: у клиентов с занятым телефоном ID = -1.
+    // При другой ошибке пул откатывает транзакцию, когда соединение возвращается
+    public int[] insertAll(List<NewClient> clients, long chatId) throws SQLException {
+        int[] ids;
+        try (PooledConnection connection = pool.acquire()) {
+            Connection raw = connection.getRawConnection();
+            raw.setAutoCommit(false);
+            ids = insertRows(connection, clients, chatId);
+            raw.commit();
+        }
+
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] > 0) {
+                NewClient client = clients.get(i);
+                indexPhone(client.phone(), ids[i]);
+                searchIndex.put(ids[i], client.name(), client.city(), client.phone());
+            }
+        }
+        return ids;
+    }
+
+    public boolean updateField(int id, ClientField field, String value) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(field.getUpdateSql());
+            statement.setString(1, value);
+            statement.setInt(2, id);
+            boolean updated = statement.executeUpdate() > 0;
+            if (updated && field == ClientField.PHONE) {
+                phoneIndex.replace(id, PhoneIndex.toKey(value));
+            }
+            if (updated) {
+                searchIndex.update(id, field, value);
+            }
+            return updated;
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // Новое время звонка; уведомления о нем получит чат chatId
+    public boolean updateMeetingTime(int id, LocalDateTime meetingTime, long chatId) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(UPDATE_MEETING_TIME);
+            statement.setTimestamp(1, Timestamp.valueOf(meetingTime));
+            statement.setLong(2, chatId);
+            statement.setInt(3, id);
+            return statement.executeUpdate() > 0;
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    // Отметить отправленное уведомление (если звонок за это время не перенесли)
+    public void updateReminderState(int id, LocalDateTime meetingTime, int state) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(UPDATE_REMINDER_STATE);
+            statement.setInt(1, state);
+            statement.setInt(2, id);
+            statement.setTimestamp(3, Timestamp.valueOf(meetingTime));
+            statement.executeUpdate();
+        }
+    }
+
+    // Отметить уведомления нескольких звонков отправленными одним пакетом
+    public void markRemindersDelivered(List<Reminder> reminders) throws SQLException {
+        if (reminders.isEmpty()) {
+            return;
+        }
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(UPDATE_REMINDER_STATE);
+            for (Reminder reminder : reminders) {
+                statement.setInt(1, Reminder.DELIVERED);
+                statement.setInt(2, reminder.clientId());
+                statement.setTimestamp(3, Timestamp.valueOf(reminder.meetingTime()));
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    // Уведомления по звонку больше не нужны (например, сделка уже завершена)
+    public void closeReminder(int id) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(CLOSE_REMINDER);
+            statement.setInt(1, id);
+            statement.executeUpdate();
+        }
+    }
+
+    // Закрыть неотправленные уведомления о звонках раньше before; возвращает количество закрытых
+    public int closeRemindersBefore(LocalDateTime before) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(CLOSE_REMINDERS_BEFORE);
+            statement.setTimestamp(1, Timestamp.valueOf(before));
+            return statement.executeUpdate();
+        }
+    }
+
+    // Потоково перебрать неотправленные уведомления о звонках начиная с from
+    public void forEachPendingReminder(LocalDateTime from, Consumer<Reminder> consumer) throws SQLException {
+        try (PooledConnection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement(FIND_PENDING_REMINDERS)) {
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            statement.setTimestamp(1, Timestamp.valueOf(from));
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(new Reminder(
+                            rs.getInt("id"),
+                            rs.getLong("reminder_chat_id"),
+                            rs.getString("name"),
+                            rs.getString("phone"),
+                            rs.getTimestamp("meeting_time").toLocalDateTime(),
+                            rs.getInt("reminder_state")
+                    ));
+                }
+            }
+        }
+    }
+
+    public boolean delete(int id) throws SQLException {
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(DELETE);
+            statement.setInt(1, id);
+            boolean deleted = statement.executeUpdate() > 0;
+            if (deleted) {
+                phoneIndex.removeClient(id);
+                searchIndex.remove(id);
+            }
+            return deleted;
+        } finally {
+            cache.invalidate(id);
+        }
+    }
+
+    private int insertRow(PooledConnection connection, NewClient client, long chatId) throws SQLException {
+        PreparedStatement statement = connection.prepareReturningKeys(INSERT);
+        bind(statement, 1, client, chatId);
+        statement.executeUpdate();
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            return keys.next() ? keys.getInt(1) : -1;
+        }
+    }
+
+    // Полные части по ROWS_PER_INSERT строк идут одним кэшированным запросом, остаток — запросом под его размер.
+    // Перед каждой частью ставится точка сохранения, чтобы при дубликате повторить построчно только ее
+    private int[] insertRows(PooledConnection connection, List<NewClient> clients, long chatId) throws SQLException {
+        Connection raw = connection.getRawConnection();
+        int[] ids = new int[clients.size()];
+        for (int from = 0; from < clients.size(); from += ROWS_PER_INSERT) {
+            List<NewClient> part = clients.subList(from, Math.min(from + ROWS_PER_INSERT, clients.size()));
+            Savepoint savepoint = raw.setSavepoint();
+            try {
+                if (part.size() == ROWS_PER_INSERT) {
+                    insertPart(connection.prepareReturningKeys(INSERT_MANY), part, chatId, ids, from);
+                } else {
+                    try (PreparedStatement statement = connection.prepareStatement(insertSql(part.size()), Statement.RETURN_GENERATED_KEYS)) {
+                        insertPart(statement, part, chatId, ids, from);
+                    }
+                }
+            } catch (SQLIntegrityConstraintViolationException e) {
+                raw.rollback(savepoint);
+                for (int i = 0; i < part.size(); i++) {
+                    try {
+                        ids[from + i] = insertRow(connection, part.get(i), chatId);
+                    } catch (SQLIntegrityConstraintViolationException duplicate) {
+                        ids[from + i] = -1;
+                    }
+                }
+            }
+            raw.releaseSavepoint(savepoint);
+        }
+        return ids;
+    }
+
+    private void insertPart(PreparedStatement statement, List<NewClient> part, long chatId, int[] ids, int from) throws SQLException {
+        int index = 1;
+        for (NewClient client : part) {
+            index = bind(statement, index, client, chatId);
+        }
+        statement.executeUpdate();
+        try (ResultSet keys = statement.getGeneratedKeys()) {
+            for (int i = 0; i < part.size(); i++) {
+                if (!keys.next()) {
+                    throw new SQLException("БД вернула " + i + " ID на " + part.size() + " строк");
+                }
+                ids[from + i] = keys.getInt(1);
+            }
+        }
+    }
+
+    // Параметры одной строки INSERT начиная с index; возвращает номер следующего параметра
+    private static int bind(PreparedStatement statement, int index, NewClient client, long chatId) throws SQLException {
+        statement.setString(index, client.name());
+        statement.setString(index + 1, client.phone());
+        statement.setString(index + 2, client.city());
+        statement.setString(index + 3, client.propertyType());
+        statement.setTimestamp(index + 4, client.meetingTime() != null ? Timestamp.valueOf(client.meetingTime()) : null);
+        statement.setLong(index + 5, chatId);
+        return index + 6;
+    }
+
+    private static String insertSql(int rows) {
+        StringBuilder sql = new StringBuilder(INSERT_INTO).append("VALUES ").append(INSERT_ROW);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", ").append(INSERT_ROW);
+        }
+        return sql.toString();
+    }
+
+    private Optional<Client> findOne(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? Optional.of(map(rs)) : Optional.empty();
+        }
+    }
+
+    private Optional<Client> cacheResult(Optional<Client> client, long generation) {
+        client.ifPresent(found -> cache.put(found, generation));
+        return client;
+    }
+
+    // Номера не в формате 8XXXXXXXXXX в индекс не попадают: такие номера при вводе не принимаются
+    private void indexPhone(String phone, int clientId) {
+        long key = PhoneIndex.toKey(phone);
+        if (key >= 0) {
+            phoneIndex.put(key, clientId);
+        }
+    }
+
+    private int count(PreparedStatement statement) throws SQLException {
+        try (ResultSet rs = statement.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    static Client map(ResultSet rs) throws SQLException {
+        Timestamp meetingTime = rs.getTimestamp("meeting_time");
+        Timestamp createdAt = rs.getTimestamp("created_at");
+        return new Client(
+                rs.getInt("id"),
+                rs.getString("name"),
+                rs.getString("phone"),
+                rs.getString("city"),
+                rs.getString("property_type"),
+                meetingTime != null ? meetingTime.toLocalDateTime() : null,
+                createdAt != null ? createdAt.toLocalDateTime() : null
+        );
+    }
+}
@@ -0,0 +1,192 @@
+package models;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTransientConnectionException;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// Ограниченный пул JDBC-соединений с проверкой и вытеснением простаивающих соединений
+public class ConnectionPool implements AutoCloseable {
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int maxSize;
+    private final int minIdle;
+    private final long acquireTimeoutMillis;
+    private final long idleTimeoutMillis;
+    private final long validationIntervalMillis;
+
+    private final Semaphore permits; // Разрешения на выдачу соединений (не больше maxSize одновременно)
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>(); // Свободные соединения, свежие в начале
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger total = new AtomicInteger();
+    private final LongAdder acquisitions = new LongAdder();
+    private final LongAdder waitNanos = new LongAdder();
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+    private final LongAdder timeouts = new LongAdder();
+    private final ScheduledExecutorService evictor;
+    private volatile boolean closed;
+
+    private static final Metrics.Histogram ACQUIRE_WAIT = Metrics.global()
+            .histogram("bot_db_pool_wait_seconds", "Ожидание свободного соединения в пуле", null).labels();
+    private static final Metrics.Counter ACQUIRE_TIMEOUTS = Metrics.global()
+            .counter("bot_db_pool_timeouts_total", "Запросы соединения, не дождавшиеся свободного соединения", null).labels();
+
+    public ConnectionPool(String url, String user, String password, int maxSize) {
+        this(url, user, password, maxSize, 2, 5_000, 10 * 60_000, 30_000);
+    }
+
+    public ConnectionPool(String url, String user, String password, int maxSize, int minIdle,
+                          long acquireTimeoutMillis, long idleTimeoutMillis, long validationIntervalMillis) {
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.maxSize = maxSize;
+        this.minIdle = minIdle;
+        this.acquireTimeoutMillis = acquireTimeoutMillis;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.validationIntervalMillis = validationIntervalMillis;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "connection-pool-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1_000, idleTimeoutMillis / 4);
+        evictor.scheduleWithFixedDelay(this::evictIdle, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    // Получить соединение из пула (возвращается в пул через close())
+    public PooledConnection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Пул соединений закрыт");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(acquireTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                ACQUIRE_TIMEOUTS.increment();
+                throw new SQLTransientConnectionException("Нет свободных соединений в пуле за " + acquireTimeoutMillis + " мс");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLTransientConnectionException("Ожидание соединения прервано", e);
+        }
+
+        long waited = System.nanoTime() - start;
+        acquisitions.increment();
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+        ACQUIRE_WAIT.observeNanos(waited);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    pooled.markAcquired();
+                    active.incrementAndGet();
+                    return pooled;
+                }
+                discard(pooled);
+            }
+
+            pooled = new PooledConnection(this, DriverManager.getConnection(url, user, password));
+            total.incrementAndGet();
+            active.incrementAndGet();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Вернуть соединение в пул; соединение, возвращенное после закрытия пула, закрывается
+    void release(PooledConnection pooled) {
+        active.decrementAndGet();
+        try {
+            Connection raw = pooled.getRawConnection();
+            if (closed || raw.isClosed()) {
+                discard(pooled);
+            } else {
+                if (!raw.getAutoCommit()) {
+                    raw.rollback();
+                    raw.setAutoCommit(true);
+                }
+                pooled.markIdle();
+                idle.offerFirst(pooled);
+                if (closed && idle.remove(pooled)) {
+                    discard(pooled); // Пул закрылся, пока соединение возвращалось
+                }
+            }
+        } catch (SQLException e) {
+            discard(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    // Соединение проверяется только если оно долго простаивало, чтобы не тратить лишний запрос к БД
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            Connection raw = pooled.getRawConnection();
+            if (raw.isClosed()) {
+                return false;
+            }
+            if (pooled.idleMillis() > validationIntervalMillis) {
+                return raw.isValid(2);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    // Закрытие соединений, простаивающих дольше idleTimeout (сверх minIdle)
+    private void evictIdle() {
+        for (PooledConnection pooled : idle) {
+            if (idle.size() <= minIdle) {
+                return;
+            }
+            if (pooled.idleMillis() > idleTimeoutMillis && idle.remove(pooled)) {
+                discard(pooled);
+            }
+        }
+    }
+
+    private void discard(PooledConnection pooled) {
+        total.decrementAndGet();
+        pooled.closeRaw();
+    }
+
+    public Stats getStats() {
+        long count = acquisitions.sum();
+        double averageWaitMillis = count == 0 ? 0.0 : waitNanos.sum() / 1_000_000.0 / count;
+        return new Stats(active.get(), idle.size(), total.get(), maxSize, count,
+                averageWaitMillis, maxWaitNanos.get() / 1_000_000.0, timeouts.sum());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        evictor.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            discard(pooled);
+        }
+    }
+
+    // Снимок статистики пула
+    public record Stats(int active, int idle, int total, int maxSize, long acquisitions,
+                        double averageWaitMillis, double maxWaitMillis, long timeouts) {
+    }
+}
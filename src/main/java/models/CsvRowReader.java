@@ -0,0 +1,143 @@
+package models;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+// Чтение CSV (RFC 4180) по одной записи без загрузки файла целиком: значения в кавычках могут содержать
+// разделитель, удвоенные кавычки и переводы строк. Разделитель — запятая или точка с запятой
+// (так сохраняет Excel с русскими региональными настройками), определяется по первой строке файла
+final class CsvRowReader implements AutoCloseable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int MAX_FIELD_LENGTH = 10_000; // Длиннее значение обрезается (в БД такие все равно не поместятся)
+
+    private final Reader reader;
+    private final char[] buffer = new char[BUFFER_SIZE];
+    private final StringBuilder field = new StringBuilder();
+    private int position;
+    private int limit;
+    private char delimiter; // 0, пока не прочитана первая строка
+    private int line = 1;   // Текущая строка файла
+    private int recordLine; // Строка, с которой началась последняя запись
+
+    CsvRowReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    // Значения следующей записи; null в конце файла. Пустые строки пропускаются
+    List<String> next() throws IOException {
+        if (delimiter == 0) {
+            detectDelimiter();
+        }
+        int c = read();
+        while (c == '\r' || c == '\n') {
+            if (c == '\n') {
+                line++;
+            }
+            c = read();
+        }
+        if (c < 0) {
+            return null;
+        }
+
+        recordLine = line;
+        List<String> fields = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        while (true) {
+            if (quoted) {
+                if (c < 0) {
+                    quoted = false; // Кавычка не закрыта до конца файла
+                    continue;
+                }
+                if (c == '"') {
+                    c = read();
+                    if (c == '"') {
+                        append('"');
+                        c = read();
+                    } else {
+                        quoted = false;
+                    }
+                    continue;
+                }
+                if (c == '\n') {
+                    line++;
+                }
+                append((char) c);
+            } else if (c < 0 || c == '\n') {
+                fields.add(field.toString());
+                if (c == '\n') {
+                    line++;
+                }
+                return fields;
+            } else if (c == delimiter) {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (c != '\r') {
+                append((char) c);
+            }
+            c = read();
+        }
+    }
+
+    // Номер строки файла, с которой началась последняя прочитанная запись
+    int line() {
+        return recordLine;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    // Разделитель, которого в первой строке (вне кавычек) больше; BOM в начале файла пропускается
+    private void detectDelimiter() throws IOException {
+        if (position == limit) {
+            fill();
+        }
+        if (position < limit && buffer[position] == '\uFEFF') {
+            position++;
+        }
+        int commas = 0;
+        int semicolons = 0;
+        boolean quoted = false;
+        for (int i = position; i < limit && (quoted || buffer[i] != '\n'); i++) {
+            char c = buffer[i];
+            if (c == '"') {
+                quoted = !quoted;
+            } else if (!quoted && c == ',') {
+                commas++;
+            } else if (!quoted && c == ';') {
+                semicolons++;
+            }
+        }
+        delimiter = semicolons > commas ? ';' : ',';
+    }
+
+    private void append(char c) {
+        if (field.length() < MAX_FIELD_LENGTH) {
+            field.append(c);
+        }
+    }
+
+    private int read() throws IOException {
+        if (position == limit && !fill()) {
+            return -1;
+        }
+        return buffer[position++];
+    }
+
+    private boolean fill() throws IOException {
+        int count;
+        do {
+            count = reader.read(buffer, 0, buffer.length);
+        } while (count == 0);
+        position = 0;
+        limit = Math.max(count, 0);
+        return count > 0;
+    }
+}
@@ -0,0 +1,118 @@
+package models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Выгрузка в CSV (RFC 4180): строка заголовков и одна строка на запись
+final class CsvRowWriter implements RowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final BufferedWriter writer;
+    private boolean firstField;
+
+    CsvRowWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    // BOM нужен, чтобы Excel открыл файл в UTF-8
+    @Override
+    public void begin(String title, List<Column> columns) throws IOException {
+        writer.write('\uFEFF');
+        firstField = true;
+        for (Column column : columns) {
+            separator();
+            escaped(column.label());
+        }
+        writer.write("\r\n");
+    }
+
+    @Override
+    public void beginRow(int number) {
+        firstField = true;
+    }
+
+    @Override
+    public void text(Column column, String value) throws IOException {
+        separator();
+        if (value != null) {
+            escaped(value);
+        }
+    }
+
+    @Override
+    public void time(Column column, Timestamp value) throws IOException {
+        separator();
+        if (value != null) {
+            FORMATTER.formatTo(value.toLocalDateTime(), writer);
+        }
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write("\r\n");
+    }
+
+    // Итог в CSV не пишется: файл должен оставаться таблицей
+    @Override
+    public void finish(String totalLabel, int count) {
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void separator() throws IOException {
+        if (firstField) {
+            firstField = false;
+        } else {
+            writer.write(',');
+        }
+    }
+
+    // Значение берется в кавычки, только если в нем есть разделитель, кавычка или перевод строки.
+    // Значение, которое Excel принял бы за формулу (начинается с =, +, - или @), пишется с апострофом в начале
+    private void escaped(String value) throws IOException {
+        int length = value.length();
+        boolean formula = length > 0 && isFormulaStart(value.charAt(0));
+        boolean quote = false;
+        for (int i = 0; i < length && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            if (formula) {
+                writer.write('\'');
+            }
+            writer.write(value, 0, length);
+            return;
+        }
+
+        writer.write('"');
+        if (formula) {
+            writer.write('\'');
+        }
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            if (value.charAt(i) == '"') {
+                writer.write(value, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, length - start);
+        writer.write('"');
+    }
+
+    private static boolean isFormulaStart(char c) {
+        return c == '=' || c == '+' || c == '-' || c == '@';
+    }
+}
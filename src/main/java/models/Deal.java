@@ -0,0 +1,8 @@
+package models;
+
+import java.time.LocalDateTime;
+
+// Сделка из таблицы deals
+public record Deal(int id, int clientId, String name, String phone, String city, String propertyType,
+                   String result, LocalDateTime dealDate) {
+}
@@ -0,0 +1,42 @@
+package models;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+// Доступ к таблице deals через подготовленные запросы, кэшируемые в соединениях пула
+public class DealRepository {
+
+    private static final String INSERT = "INSERT INTO deals (client_id, name, phone, city, property_type, result, deal_date) VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+    private final ConnectionPool pool;
+
+    public DealRepository(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    // Сохранить сделку по клиенту, возвращает сохраненную запись
+    public Deal insert(Client client, String result) throws SQLException {
+        LocalDateTime dealDate = LocalDateTime.now();
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepareReturningKeys(INSERT);
+            statement.setInt(1, client.id());
+            statement.setString(2, client.name());
+            statement.setString(3, client.phone());
+            statement.setString(4, client.city());
+            statement.setString(5, client.propertyType());
+            statement.setString(6, result);
+            statement.setTimestamp(7, Timestamp.valueOf(dealDate));
+            statement.executeUpdate();
+
+            int id;
+            try (ResultSet keys = statement.getGeneratedKeys()) {
+                id = keys.next() ? keys.getInt(1) : -1;
+            }
+            return new Deal(id, client.id(), client.name(), client.phone(), client.city(),
+                    client.propertyType(), result, dealDate);
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package models;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+// Формат файла выгрузки; выбирается в меню работы с клиентами
+public enum ExportFormat {
+    TEXT("TXT", ".txt"),
+    CSV("CSV", ".csv"),
+    XLSX("Excel", ".xlsx");
+
+    private final String displayName;
+    private final String extension;
+
+    ExportFormat(String displayName, String extension) {
+        this.displayName = displayName;
+        this.extension = extension;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    // Следующий формат по кругу (для кнопки переключения)
+    public ExportFormat next() {
+        ExportFormat[] values = values();
+        return values[(ordinal() + 1) % values.length];
+    }
+
+    RowWriter open(OutputStream out) throws IOException {
+        return switch (this) {
+            case TEXT -> new TextRowWriter(out);
+            case CSV -> new CsvRowWriter(out);
+            case XLSX -> new XlsxRowWriter(out);
+        };
+    }
+}
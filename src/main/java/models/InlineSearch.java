@@ -0,0 +1,200 @@
+package models;
+
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+// Поиск клиентов в инлайн-режиме (@бот запрос из любого чата). Telegram присылает запрос на каждое
+// нажатие клавиши, поэтому ответ откладывается на debounce: если пользователь успел ввести следующий
+// символ, предыдущий запрос не обрабатывается. Ответы берутся из индекса поиска в памяти и кэшируются
+// по тексту запроса; запись кэша действительна, пока индекс не изменился (поколение индекса).
+// Ответ, который дождался отправки после нового запроса того же пользователя, не отправляется
+public class InlineSearch implements AutoCloseable {
+
+    private static final int MAX_RESULTS = 20;
+    private static final int CACHE_SIZE = 1000;
+    private static final int TELEGRAM_CACHE_SECONDS = 10; // Кэш ответа на стороне Telegram (отдельно для каждого пользователя)
+
+    private static final Metrics.Family<Metrics.Counter> QUERIES = Metrics.global()
+            .counter("bot_inline_queries_total", "Инлайн-запросы по результату: answered, cached, superseded, short", "outcome");
+
+    private final ClientRepository clients;
+    private final Sender sender;
+    private final long debounceMillis;
+    private final Map<Long, Pending> pendingByUser = new ConcurrentHashMap<>();
+    private final Map<Long, String> latestQuery = new ConcurrentHashMap<>(); // Пользователь -> ID последнего запроса без ответа
+    private final ResultCache cache = new ResultCache(CACHE_SIZE);
+    private final ScheduledExecutorService scheduler;
+
+    // Отправка ответа (через очередь отправки, только с общим лимитом: ответ на инлайн-запрос — не сообщение в чат).
+    // current проверяется перед каждой попыткой отправки (и перед повтором после 429 или 5xx):
+    // false — пользователь уже ввел новый запрос. Возвращает завершение отправки
+    @FunctionalInterface
+    public interface Sender {
+        CompletableFuture<?> send(long userId, AnswerInlineQuery answer, BooleanSupplier current);
+    }
+
+    // Отложенный ответ на последний запрос пользователя
+    private static final class Pending {
+        private final InlineQuery query;
+        private ScheduledFuture<?> future;
+
+        private Pending(InlineQuery query) {
+            this.query = query;
+        }
+    }
+
+    // Ответ на запрос и поколение индекса, по которому он построен
+    private record CachedAnswer(long generation, List<InlineQueryResult> results) {
+    }
+
+    public InlineSearch(ClientRepository clients, Sender sender, Duration debounce) {
+        this.clients = clients;
+        this.sender = sender;
+        this.debounceMillis = debounce.toMillis();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "inline-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Новый запрос пользователя: заменяет его предыдущий, еще не обработанный запрос
+    public void onQuery(InlineQuery query) {
+        long userId = query.getFrom().getId();
+        String text = query.getQuery() != null ? query.getQuery() : "";
+        latestQuery.put(userId, query.getId());
+
+        if (SearchIndex.isTooShort(text)) {
+            cancelPending(userId);
+            QUERIES.labels("short").increment();
+            answer(query, List.of());
+            return;
+        }
+        CachedAnswer cached = cache.get(cacheKey(text));
+        if (cached != null && cached.generation() == clients.searchGeneration()) {
+            cancelPending(userId);
+            QUERIES.labels("cached").increment();
+            answer(query, cached.results());
+            return;
+        }
+
+        Pending pending = new Pending(query);
+        Pending previous = pendingByUser.put(userId, pending);
+        pending.future = scheduler.schedule(() -> fire(userId, pending), debounceMillis, TimeUnit.MILLISECONDS);
+        cancel(previous);
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void cancelPending(long userId) {
+        cancel(pendingByUser.remove(userId));
+    }
+
+    private void cancel(Pending pending) {
+        if (pending != null && pending.future != null && pending.future.cancel(false)) {
+            QUERIES.labels("superseded").increment();
+        }
+    }
+
+    private void fire(long userId, Pending pending) {
+        if (!pendingByUser.remove(userId, pending)) {
+            return; // Пользователь уже ввел следующий символ
+        }
+        try {
+            String text = pending.query.getQuery();
+            long generation = clients.searchGeneration(); // Снимается до поиска: изменение во время поиска не попадет в кэш
+            List<InlineQueryResult> results = toResults(clients.search(text, MAX_RESULTS));
+            cache.put(cacheKey(text), new CachedAnswer(generation, results));
+            QUERIES.labels("answered").increment();
+            answer(pending.query, results);
+        } catch (Exception e) {
+            Log.error("Ошибка инлайн-поиска", e, "userId", userId);
+        }
+    }
+
+    private void answer(InlineQuery query, List<InlineQueryResult> results) {
+        AnswerInlineQuery answer = new AnswerInlineQuery();
+        answer.setInlineQueryId(query.getId());
+        answer.setResults(results);
+        answer.setCacheTime(TELEGRAM_CACHE_SECONDS);
+        answer.setIsPersonal(true);
+        long userId = query.getFrom().getId();
+        String queryId = query.getId();
+        // Запрос забывается только после отправки: повтор после ошибки должен пройти проверку снова
+        sender.send(userId, answer, () -> isLatest(userId, queryId))
+                .whenComplete((result, error) -> latestQuery.remove(userId, queryId));
+    }
+
+    // Ответы на замененные запросы отбрасываются
+    private boolean isLatest(long userId, String queryId) {
+        if (queryId.equals(latestQuery.get(userId))) {
+            return true;
+        }
+        QUERIES.labels("superseded").increment();
+        return false;
+    }
+
+    // Статья на каждого клиента: при выборе в чат отправляется карточка клиента
+    private static List<InlineQueryResult> toResults(List<SearchIndex.Match> matches) {
+        List<InlineQueryResult> results = new ArrayList<>(matches.size());
+        for (SearchIndex.Match match : matches) {
+            results.add(InlineQueryResultArticle.builder()
+                    .id(Integer.toString(match.clientId()))
+                    .title(match.name())
+                    .description("📱 " + match.phone() + "   🏙️ " + match.city())
+                    .inputMessageContent(InputTextMessageContent.builder()
+                            .messageText("👤 " + match.name() + "\n" +
+                                    "📱 " + match.phone() + "\n" +
+                                    "🏙️ " + match.city())
+                            .build())
+                    .build());
+        }
+        return List.copyOf(results);
+    }
+
+    private static String cacheKey(String text) {
+        return text.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Последние ответы по тексту запроса с вытеснением давно не использованных (LRU)
+    private static final class ResultCache {
+        private final LinkedHashMap<String, CachedAnswer> entries;
+
+        private ResultCache(int maxSize) {
+            this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedAnswer> eldest) {
+                    return size() > maxSize;
+                }
+            };
+        }
+
+        synchronized CachedAnswer get(String key) {
+            return entries.get(key);
+        }
+
+        synchronized void put(String key, CachedAnswer answer) {
+            entries.put(key, answer);
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package models;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Структурированный журнал в формате logfmt: time=... level=INFO msg="..." chatId=... route=... durationMs=... ключ=значение.
+// Поток обработчика только проверяет уровень и кладет запись в кольцевой буфер; строка собирается
+// и пишется в stdout отдельным потоком, поэтому поля выключенного уровня не форматируются вовсе,
+// а вывод в консоль не входит во время обработки обновления. При переполнении буфера записи
+// отбрасываются (счетчик bot_log_dropped_total), обработчик никогда не ждет журнал.
+// Уровень задается переменной окружения LOG_LEVEL (DEBUG, INFO, WARN, ERROR; по умолчанию INFO)
+public final class Log {
+
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }
+
+    private static final int CAPACITY = 8192;
+    private static final int BATCH = 256;
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSS");
+    private static final int MAX_CAUSES = 8;
+
+    private static final BlockingQueue<Entry> BUFFER = new ArrayBlockingQueue<>(CAPACITY);
+    private static final AtomicLong ACCEPTED = new AtomicLong();
+    private static final AtomicLong WRITTEN = new AtomicLong();
+    private static final ThreadLocal<Context> CONTEXT = new ThreadLocal<>();
+    private static final Metrics.Counter DROPPED = Metrics.global()
+            .counter("bot_log_dropped_total", "Записи журнала, отброшенные при переполнении буфера", null).labels();
+
+    private static final String LEVEL_SETTING = System.getenv("LOG_LEVEL");
+    private static final Level CONFIGURED_LEVEL = parseLevel(LEVEL_SETTING); // null — значение не распознано
+    private static volatile Level level = CONFIGURED_LEVEL != null ? CONFIGURED_LEVEL : Level.INFO;
+    private static final Thread WRITER = startWriter();
+
+    // Неверный LOG_LEVEL сообщается в сам журнал, когда поток вывода уже запущен
+    static {
+        if (CONFIGURED_LEVEL == null) {
+            warn("Неизвестный LOG_LEVEL, используется INFO", "value", LEVEL_SETTING);
+        }
+    }
+
+    // Запись журнала; поля и трассировка превращаются в текст только в потоке вывода
+    private record Entry(long timeMillis, Level level, String message, Object[] fields, Throwable error,
+                         long chatId, String route, long durationNanos) {
+    }
+
+    // Обновление, которое сейчас обрабатывает поток: его чат, маршрут и момент начала
+    private static final class Context {
+        private final long chatId;
+        private final long startNanos;
+        private String route;
+
+        private Context(long chatId, long startNanos) {
+            this.chatId = chatId;
+            this.startNanos = startNanos;
+        }
+    }
+
+    private Log() {
+    }
+
+    public static boolean isEnabled(Level candidate) {
+        return candidate.compareTo(level) >= 0;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    // fields — пары ключ, значение: Log.info("Клиент сохранен", "clientId", id, "phone", phone)
+    public static void debug(String message, Object... fields) {
+        if (isEnabled(Level.DEBUG)) {
+            append(Level.DEBUG, message, null, fields);
+        }
+    }
+
+    public static void info(String message, Object... fields) {
+        if (isEnabled(Level.INFO)) {
+            append(Level.INFO, message, null, fields);
+        }
+    }
+
+    public static void warn(String message, Object... fields) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, message, null, fields);
+        }
+    }
+
+    public static void warn(String message, Throwable error, Object... fields) {
+        if (isEnabled(Level.WARN)) {
+            append(Level.WARN, message, error, fields);
+        }
+    }
+
+    public static void error(String message, Throwable error, Object... fields) {
+        if (isEnabled(Level.ERROR)) {
+            append(Level.ERROR, message, error, fields);
+        }
+    }
+
+    // Начало обработки обновления чата: последующие записи этого потока получают chatId и длительность
+    public static void beginUpdate(long chatId) {
+        CONTEXT.set(new Context(chatId, System.nanoTime()));
+    }
+
+    // Маршрут текущего обновления (действие кнопки, состояние диалога или команда)
+    public static void route(String route) {
+        Context context = CONTEXT.get();
+        if (context != null) {
+            context.route = route;
+        }
+    }
+
+    // Конец обработки обновления: итоговая запись с полной длительностью (на уровне DEBUG)
+    public static void endUpdate() {
+        debug("Обновление обработано");
+        CONTEXT.remove();
+    }
+
+    // Дождаться вывода уже принятых записей (не дольше 5 секунд) — перед остановкой процесса или сменой System.out
+    public static void flush() {
+        long target = ACCEPTED.get();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (WRITTEN.get() < target && System.nanoTime() < deadline && WRITER.isAlive()) {
+            try {
+                Thread.sleep(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    private static void append(Level entryLevel, String message, Throwable error, Object[] fields) {
+        Context context = CONTEXT.get();
+        Entry entry = context != null
+                ? new Entry(System.currentTimeMillis(), entryLevel, message, fields, error,
+                context.chatId, context.route, System.nanoTime() - context.startNanos)
+                : new Entry(System.currentTimeMillis(), entryLevel, message, fields, error, 0, null, -1);
+        if (BUFFER.offer(entry)) {
+            ACCEPTED.incrementAndGet();
+        } else {
+            DROPPED.increment();
+        }
+    }
+
+    private static Thread startWriter() {
+        Thread thread = new Thread(Log::drain, "log-writer");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    // Поток вывода: забирает записи пачками и пишет их в stdout одним вызовом на пачку
+    private static void drain() {
+        List<Entry> batch = new ArrayList<>(BATCH);
+        StringBuilder out = new StringBuilder(16 * 1024);
+        while (true) {
+            try {
+                batch.add(BUFFER.take());
+            } catch (InterruptedException e) {
+                return;
+            }
+            BUFFER.drainTo(batch, BATCH - 1);
+            for (Entry entry : batch) {
+                int mark = out.length();
+                try {
+                    format(entry, out);
+                } catch (RuntimeException e) {
+                    out.setLength(mark); // toString() поля упал — запись выводится без полей
+                    out.append("level=").append(entry.level()).append(" msg=");
+                    value(entry.message(), out);
+                    out.append(" logError=");
+                    value(String.valueOf(e), out);
+                    out.append('\n');
+                }
+            }
+            PrintStream stdout = System.out; // Текущий поток вывода (бенчмарки его подменяют)
+            stdout.print(out);
+            stdout.flush();
+            WRITTEN.addAndGet(batch.size());
+            batch.clear();
+            out.setLength(0);
+        }
+    }
+
+    private static void format(Entry entry, StringBuilder out) {
+        out.append("time=").append(TIME.format(LocalDateTime.ofInstant(Instant.ofEpochMilli(entry.timeMillis()), ZoneId.systemDefault())));
+        out.append(" level=").append(entry.level());
+        out.append(" msg=");
+        value(entry.message(), out);
+        if (entry.durationNanos() >= 0) {
+            out.append(" chatId=").append(entry.chatId());
+            if (entry.route() != null) {
+                out.append(" route=");
+                value(entry.route(), out);
+            }
+            out.append(" durationMs=").append(String.format("%.3f", entry.durationNanos() / 1e6));
+        }
+        Object[] fields = entry.fields();
+        for (int i = 0; fields != null && i + 1 < fields.length; i += 2) {
+            out.append(' ').append(fields[i]).append('=');
+            value(fields[i + 1], out);
+        }
+        Throwable error = entry.error();
+        if (error != null) {
+            out.append(" error=");
+            value(String.valueOf(error), out);
+            out.append('\n');
+            for (StackTraceElement element : error.getStackTrace()) {
+                out.append("\tat ").append(element).append('\n');
+            }
+            Throwable cause = error.getCause();
+            for (int depth = 0; cause != null && depth < MAX_CAUSES; depth++, cause = cause.getCause()) {
+                out.append("Caused by: ").append(cause).append('\n');
+                for (StackTraceElement element : cause.getStackTrace()) {
+                    out.append("\tat ").append(element).append('\n');
+                }
+            }
+        } else {
+            out.append('\n');
+        }
+    }
+
+    // Значение поля: без кавычек, если в нем нет пробелов, кавычек и знака '='
+    private static void value(Object value, StringBuilder out) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=' || c == '\\';
+        }
+        if (!quote) {
+            out.append(text);
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    // Уровень из LOG_LEVEL: INFO, если переменная не задана; null, если значение не распознано
+    private static Level parseLevel(String value) {
+        if (value == null || value.isBlank()) {
+            return Level.INFO;
+        }
+        try {
+            return Level.valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+// Реестр задач уведомлений по звонкам с индексами по ID клиента и телефону:
+// все задачи звонка находятся и отменяются за O(1), выполненные задачи удаляются сами
+public class MeetingTaskRegistry {
+
+    private final TimingWheel wheel;
+    private final Map<Integer, Entry> byClient = new ConcurrentHashMap<>();
+    private final Map<String, Integer> clientByPhone = new ConcurrentHashMap<>();
+
+    public MeetingTaskRegistry(TimingWheel wheel) {
+        this.wheel = wheel;
+    }
+
+    // Запланировать уведомление по звонку клиента
+    public TimingWheel.Timeout schedule(int clientId, String phone, long deadlineMillis, Runnable task) {
+        AtomicReference<TimingWheel.Timeout> self = new AtomicReference<>();
+        TimingWheel.Timeout timeout = wheel.schedule(() -> {
+            try {
+                task.run();
+            } finally {
+                completed(clientId, self.get());
+            }
+        }, deadlineMillis);
+        self.set(timeout);
+        register(clientId, phone, timeout);
+        return timeout;
+    }
+
+    // Отменить все уведомления клиента, возвращает число отмененных задач
+    public int cancel(int clientId) {
+        Entry entry = byClient.remove(clientId);
+        if (entry == null) {
+            return 0;
+        }
+        clientByPhone.remove(entry.phone, clientId);
+
+        int cancelled = 0;
+        for (TimingWheel.Timeout timeout : entry.timeouts) {
+            if (timeout.cancel()) {
+                cancelled++;
+            }
+        }
+        return cancelled;
+    }
+
+    // Отменить все уведомления по номеру телефона клиента
+    public int cancelByPhone(String phone) {
+        Integer clientId = clientByPhone.get(phone);
+        return clientId != null ? cancel(clientId) : 0;
+    }
+
+    // Количество звонков с запланированными уведомлениями
+    public int size() {
+        return byClient.size();
+    }
+
+    private void register(int clientId, String phone, TimingWheel.Timeout timeout) {
+        byClient.compute(clientId, (id, entry) -> {
+            // Задача уже успела выполниться: хранить ее не нужно
+            if (timeout.isExpired()) {
+                return entry;
+            }
+            if (entry == null) {
+                entry = new Entry(phone);
+            } else if (!entry.phone.equals(phone)) {
+                clientByPhone.remove(entry.phone, clientId);
+                entry.phone = phone;
+            }
+            entry.timeouts.add(timeout);
+            clientByPhone.put(phone, clientId);
+            return entry;
+        });
+    }
+
+    private void completed(int clientId, TimingWheel.Timeout timeout) {
+        if (timeout == null) {
+            return;
+        }
+        byClient.computeIfPresent(clientId, (id, entry) -> {
+            entry.timeouts.remove(timeout);
+            if (entry.timeouts.isEmpty()) {
+                clientByPhone.remove(entry.phone, clientId);
+                return null;
+            }
+            return entry;
+        });
+    }
+
+    // Задачи одного звонка (обычно две: за 5 минут и в момент звонка)
+    private static final class Entry {
+        private String phone;
+        private final List<TimingWheel.Timeout> timeouts = new ArrayList<>(2);
+
+        private Entry(String phone) {
+            this.phone = phone;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+// Реестр метрик процесса в текстовом формате Prometheus: гистограммы длительностей, счетчики и
+// показатели, снимаемые в момент запроса. Метрика с меткой хранит отдельную серию на каждое значение метки.
+// Регистрация идемпотентна: повторный вызов с тем же именем возвращает уже созданную метрику
+public class Metrics {
+
+    private static final Metrics GLOBAL = new Metrics();
+
+    // Границы корзин гистограмм: от 0,5 мс до 10 с
+    private static final double[] BUCKET_SECONDS = {0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+    private static final long[] BUCKET_NANOS = new long[BUCKET_SECONDS.length];
+
+    static {
+        for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+            BUCKET_NANOS[i] = (long) (BUCKET_SECONDS[i] * TimeUnit.SECONDS.toNanos(1));
+        }
+    }
+
+    private final Map<String, Family<?>> families = new ConcurrentHashMap<>();
+    private final List<String> order = new ArrayList<>(); // Порядок вывода — порядок регистрации
+
+    // Общий реестр процесса (его отдает MetricsServer)
+    public static Metrics global() {
+        return GLOBAL;
+    }
+
+    public Family<Histogram> histogram(String name, String help, String label) {
+        return register(name, help, "histogram", label, Histogram::new);
+    }
+
+    public Family<Counter> counter(String name, String help, String label) {
+        return register(name, help, "counter", label, Counter::new);
+    }
+
+    // Показатель, значение которого берется из supplier при каждом запросе метрик
+    public void gauge(String name, String help, DoubleSupplier supplier) {
+        register(name, help, "gauge", null, Gauge::new).labels().supplier = supplier;
+    }
+
+    // Все метрики в текстовом формате Prometheus
+    public String scrape() {
+        List<String> names;
+        synchronized (order) {
+            names = new ArrayList<>(order);
+        }
+        StringBuilder out = new StringBuilder(4096);
+        for (String name : names) {
+            families.get(name).writeTo(out);
+        }
+        return out.toString();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends Series> Family<T> register(String name, String help, String type, String label, Supplier<T> factory) {
+        Family<?> family = families.computeIfAbsent(name, key -> {
+            synchronized (order) {
+                order.add(key);
+            }
+            return new Family<>(name, help, type, label, factory);
+        });
+        return (Family<T>) family;
+    }
+
+    // Метрика с сериями по значениям одной метки (или одна серия без метки)
+    public static final class Family<T extends Series> {
+        private final String name;
+        private final String help;
+        private final String type;
+        private final String label;
+        private final Supplier<T> factory;
+        private final Map<String, T> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String type, String label, Supplier<T> factory) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+            this.label = label;
+            this.factory = factory;
+        }
+
+        public T labels(String value) {
+            T existing = series.get(value);
+            return existing != null ? existing : series.computeIfAbsent(value, key -> factory.get());
+        }
+
+        // Серия метрики без метки
+        public T labels() {
+            return labels("");
+        }
+
+        private void writeTo(StringBuilder out) {
+            out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+            out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+            for (Map.Entry<String, T> entry : series.entrySet()) {
+                String labelPair = label != null ? label + "=\"" + escape(entry.getKey()) + "\"" : "";
+                entry.getValue().writeTo(out, name, labelPair);
+            }
+        }
+    }
+
+    public abstract static class Series {
+        abstract void writeTo(StringBuilder out, String name, String labelPair);
+    }
+
+    // Гистограмма длительностей (значения в секундах)
+    public static final class Histogram extends Series {
+        private final LongAdder[] buckets = new LongAdder[BUCKET_NANOS.length + 1]; // Последняя — больше всех границ
+        private final LongAdder sumNanos = new LongAdder();
+
+        private Histogram() {
+            for (int i = 0; i < buckets.length; i++) {
+                buckets[i] = new LongAdder();
+            }
+        }
+
+        public void observeNanos(long nanos) {
+            int i = 0;
+            while (i < BUCKET_NANOS.length && nanos > BUCKET_NANOS[i]) {
+                i++;
+            }
+            buckets[i].increment();
+            sumNanos.add(nanos);
+        }
+
+        // Длительность от момента startNanos (System.nanoTime()) до текущего
+        public void observeSince(long startNanos) {
+            observeNanos(System.nanoTime() - startNanos);
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name, String labelPair) {
+            String prefix = labelPair.isEmpty() ? "" : labelPair + ",";
+            long cumulative = 0;
+            for (int i = 0; i < BUCKET_SECONDS.length; i++) {
+                cumulative += buckets[i].sum();
+                out.append(name).append("_bucket{").append(prefix).append("le=\"").append(BUCKET_SECONDS[i]).append("\"} ")
+                        .append(cumulative).append('\n');
+            }
+            cumulative += buckets[BUCKET_SECONDS.length].sum();
+            out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+            out.append(name).append("_sum").append(braces(labelPair)).append(' ')
+                    .append(sumNanos.sum() / 1e9).append('\n');
+            out.append(name).append("_count").append(braces(labelPair)).append(' ').append(cumulative).append('\n');
+        }
+    }
+
+    public static final class Counter extends Series {
+        private final LongAdder value = new LongAdder();
+
+        private Counter() {
+        }
+
+        public void increment() {
+            value.increment();
+        }
+
+        @Override
+        void writeTo(StringBuilder out, String name, String labelPair) {
+            out.append(name).append(braces(labelPair)).append(' ').append(value.sum()).append('\n');
+        }
+    }
+
+    private static final class Gauge extends Series {
+        private volatile DoubleSupplier supplier;
+
+        @Override
+        void writeTo(StringBuilder out, String name, String labelPair) {
+            double value;
+            try {
+                value = supplier.getAsDouble();
+            } catch (RuntimeException e) {
+                value = Double.NaN;
+            }
+            out.append(name).append(braces(labelPair)).append(' ').append(value).append('\n');
+        }
+    }
+
+    private static String braces(String labelPair) {
+        return labelPair.isEmpty() ? "" : "{" + labelPair + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+}
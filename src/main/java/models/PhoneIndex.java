@@ -0,0 +1,179 @@
+package models;
+
+// Индекс телефонов клиентов в памяти: телефон (8 и 10 цифр) хранится как long,
+// таблицы long -> long с открытой адресацией и линейным пробированием: телефон -> ID клиента
+// и обратная ID клиента -> телефон, чтобы удаление и смена телефона не просматривали всю таблицу
+public class PhoneIndex {
+
+    public static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final Table clientByPhone = new Table();
+    private final Table phoneByClient = new Table();
+
+    // Ключ для телефона формата 8XXXXXXXXXX; -1, если телефон в индекс не помещается
+    public static long toKey(String phone) {
+        if (phone == null || phone.length() != 11 || phone.charAt(0) != '8') {
+            return -1;
+        }
+        long key = 0;
+        for (int i = 0; i < 11; i++) {
+            char c = phone.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            key = key * 10 + (c - '0');
+        }
+        return key;
+    }
+
+    // ID клиента с этим телефоном или NOT_FOUND
+    public synchronized int get(long phone) {
+        long clientId = clientByPhone.get(phone);
+        return clientId != Table.MISSING ? (int) clientId : NOT_FOUND;
+    }
+
+    // Телефон клиента (ID больше нуля); прежний телефон клиента удаляется
+    public synchronized void put(long phone, int clientId) {
+        long previousClient = clientByPhone.put(phone, clientId);
+        if (previousClient != Table.MISSING && previousClient != clientId) {
+            phoneByClient.remove(previousClient);
+        }
+        long previousPhone = phoneByClient.put(clientId, phone);
+        if (previousPhone != Table.MISSING && previousPhone != phone) {
+            clientByPhone.remove(previousPhone);
+        }
+    }
+
+    // Смена телефона клиента одним шагом: между удалением старого номера и добавлением нового
+    // проверка занятости не увидит клиента без телефона. phone < 0 — новый номер в индекс не помещается
+    public synchronized void replace(int clientId, long phone) {
+        if (phone < 0) {
+            removeClient(clientId);
+        } else {
+            put(phone, clientId);
+        }
+    }
+
+    public synchronized void removeClient(int clientId) {
+        long phone = phoneByClient.remove(clientId);
+        if (phone != Table.MISSING) {
+            clientByPhone.remove(phone);
+        }
+    }
+
+    public synchronized int size() {
+        return clientByPhone.size;
+    }
+
+    public synchronized void clear() {
+        clientByPhone.clear();
+        phoneByClient.clear();
+    }
+
+    // Таблица long -> long; ключ 0 означает пустую ячейку (телефон 8XXXXXXXXXX и ID клиента не равны 0)
+    private static final class Table {
+        private static final long EMPTY = 0;
+        private static final long MISSING = Long.MIN_VALUE;
+
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private long[] values = new long[INITIAL_CAPACITY];
+        private int size;
+
+        long get(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return values[i];
+                }
+            }
+            return MISSING;
+        }
+
+        // Возвращает прежнее значение или MISSING
+        long put(long key, long value) {
+            int mask = keys.length - 1;
+            int i = slot(key, mask);
+            while (keys[i] != EMPTY) {
+                if (keys[i] == key) {
+                    long previous = values[i];
+                    values[i] = value;
+                    return previous;
+                }
+                i = (i + 1) & mask;
+            }
+            keys[i] = key;
+            values[i] = value;
+            if (++size > keys.length * 3 / 4) {
+                resize();
+            }
+            return MISSING;
+        }
+
+        // Возвращает удаленное значение или MISSING
+        long remove(long key) {
+            int mask = keys.length - 1;
+            for (int i = slot(key, mask); keys[i] != EMPTY; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    long value = values[i];
+                    removeAt(i);
+                    return value;
+                }
+            }
+            return MISSING;
+        }
+
+        void clear() {
+            keys = new long[INITIAL_CAPACITY];
+            values = new long[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        // Сдвиг следующих записей цепочки на освободившееся место
+        private void removeAt(int i) {
+            int mask = keys.length - 1;
+            int free = i;
+            keys[free] = EMPTY;
+            size--;
+            for (int j = (free + 1) & mask; keys[j] != EMPTY; j = (j + 1) & mask) {
+                int home = slot(keys[j], mask);
+                boolean movable = free <= j ? (home <= free || home > j) : (home <= free && home > j);
+                if (movable) {
+                    keys[free] = keys[j];
+                    values[free] = values[j];
+                    keys[j] = EMPTY;
+                    free = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            long[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new long[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldKeys[j] != EMPTY) {
+                    int i = slot(oldKeys[j], mask);
+                    while (keys[i] != EMPTY) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        // Перемешивание битов ключа (финализатор MurmurHash3)
+        private static int slot(long key, int mask) {
+            key ^= key >>> 33;
+            key *= 0xff51afd7ed558ccdL;
+            key ^= key >>> 33;
+            key *= 0xc4ceb9fe1a85ec53L;
+            key ^= key >>> 33;
+            return (int) key & mask;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package models;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+// Соединение, выданное пулом: close() возвращает его в пул, а не закрывает (повторный close() ничего не делает).
+// Время запроса (от подготовки до следующего запроса или возврата соединения) пишется в метрики по тексту SQL
+// (у многострочного INSERT — по первой строке значений, чтобы размер пачки не порождал новые серии)
+public class PooledConnection implements AutoCloseable {
+
+    private static final Metrics.Family<Metrics.Histogram> SQL_TIMINGS = Metrics.global()
+            .histogram("bot_sql_duration_seconds", "Выполнение SQL-запроса вместе с чтением результата", "statement");
+
+    private final ConnectionPool pool;
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statementCache = new HashMap<>(); // Подготовленные запросы этого соединения
+    private final Map<String, PreparedStatement> keyStatementCache = new HashMap<>(); // Запросы, возвращающие сгенерированные ключи
+    private final AtomicBoolean released = new AtomicBoolean(); // Возвращено в пул после последней выдачи
+    private long idleSince = System.currentTimeMillis();
+    private String activeSql;      // Запрос, выполняемый сейчас
+    private long activeSinceNanos;
+
+    PooledConnection(ConnectionPool pool, Connection connection) {
+        this.pool = pool;
+        this.connection = connection;
+    }
+
+    public PreparedStatement prepareStatement(String sql) throws SQLException {
+        startTiming(sql);
+        return connection.prepareStatement(sql);
+    }
+
+    public PreparedStatement prepareStatement(String sql, int autoGeneratedKeys) throws SQLException {
+        startTiming(sql);
+        return connection.prepareStatement(sql, autoGeneratedKeys);
+    }
+
+    // Подготовленный запрос из кэша соединения (не закрывать: он живет вместе с соединением)
+    public PreparedStatement prepare(String sql) throws SQLException {
+        startTiming(sql);
+        PreparedStatement statement = statementCache.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql);
+            statementCache.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    // То же, что prepare(), но с возвратом сгенерированных ключей
+    public PreparedStatement prepareReturningKeys(String sql) throws SQLException {
+        startTiming(sql);
+        PreparedStatement statement = keyStatementCache.get(sql);
+        if (statement == null || statement.isClosed()) {
+            statement = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+            keyStatementCache.put(sql, statement);
+        } else {
+            statement.clearParameters();
+        }
+        return statement;
+    }
+
+    public Statement createStatement() throws SQLException {
+        return connection.createStatement();
+    }
+
+    public Connection getRawConnection() {
+        return connection;
+    }
+
+    long idleMillis() {
+        return System.currentTimeMillis() - idleSince;
+    }
+
+    // Соединение выдано из пула
+    void markAcquired() {
+        released.set(false);
+    }
+
+    void markIdle() {
+        idleSince = System.currentTimeMillis();
+    }
+
+    void closeRaw() {
+        statementCache.clear();
+        keyStatementCache.clear();
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            Log.error("Ошибка закрытия соединения", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (!released.compareAndSet(false, true)) {
+            return;
+        }
+        finishTiming();
+        pool.release(this);
+    }
+
+    private void startTiming(String sql) {
+        finishTiming();
+        activeSql = sql;
+        activeSinceNanos = System.nanoTime();
+    }
+
+    private void finishTiming() {
+        if (activeSql != null) {
+            SQL_TIMINGS.labels(label(activeSql)).observeSince(activeSinceNanos);
+            activeSql = null;
+        }
+    }
+
+    private static String label(String sql) {
+        int next = sql.indexOf("), (");
+        return next < 0 ? sql : sql.substring(0, next + 1) + ", ...";
+    }
+}
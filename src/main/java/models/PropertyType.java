@@ -0,0 +1,32 @@
+package models;
+
+// Типы недвижимости; в БД хранится value, в кнопках — порядковый номер
+public enum PropertyType {
+    STUDIO("студия", "🏢 Студия"),
+    ONE_ROOM("1-комнатная", "1️⃣ 1-комнатная"),
+    TWO_ROOM("2-комнатная", "2️⃣ 2-комнатная"),
+    THREE_ROOM("3-комнатная", "3️⃣ 3-комнатная"),
+    HOUSE("дом", "🏡 Дом");
+
+    private static final PropertyType[] VALUES = values();
+
+    private final String value;
+    private final String buttonText;
+
+    PropertyType(String value, String buttonText) {
+        this.value = value;
+        this.buttonText = buttonText;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public String getButtonText() {
+        return buttonText;
+    }
+
+    public static PropertyType byOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+}
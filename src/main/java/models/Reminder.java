@@ -0,0 +1,11 @@
+package models;
+
+import java.time.LocalDateTime;
+
+// Запланированный звонок, по которому нужно отправить уведомления
+public record Reminder(int clientId, long chatId, String name, String phone, LocalDateTime meetingTime, int state) {
+
+    public static final int PENDING = 0;        // Уведомления еще не отправлялись
+    public static final int REMINDED = 1;       // Отправлено напоминание за 5 минут
+    public static final int DELIVERED = 2;      // Отправлено уведомление о начале звонка
+}
@@ -0,0 +1,29 @@
+package models;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.List;
+
+// Запись строк выгрузки в файл конкретного формата; значения передаются по одной ячейке,
+// без сборки промежуточных строк
+interface RowWriter extends AutoCloseable {
+
+    // Колонка выгрузки (в порядке колонок выборки): заголовок и признак даты
+    record Column(String label, boolean time) {
+    }
+
+    void begin(String title, List<Column> columns) throws IOException;
+
+    void beginRow(int number) throws IOException;
+
+    void text(Column column, String value) throws IOException;
+
+    void time(Column column, Timestamp value) throws IOException;
+
+    void endRow() throws IOException;
+
+    void finish(String totalLabel, int count) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
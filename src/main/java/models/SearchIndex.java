@@ -0,0 +1,347 @@
+package models;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+// Индекс подстрок по имени, городу и телефону клиентов: для каждой тройки символов поля
+// хранится отсортированный список ID клиентов. Поиск просматривает самый короткий из списков
+// троек запроса и проверяет подстроку у кандидатов, пока не наберет нужное число совпадений.
+// Запрос из цифр ищется в телефонах (например, последние четыре цифры), остальные — в именах, затем в городах.
+// Регистр и «ё» не учитываются
+public class SearchIndex {
+
+    public static final int MIN_QUERY_LENGTH = 3;
+
+    private static final int ANY = 0;      // Список всех вхождений тройки
+    private static final int ANCHORED = 1; // Список вхождений в начале слова имени или в конце телефона
+
+    // Найденный клиент (данные из индекса, без обращения к БД)
+    public record Match(int clientId, String name, String city, String phone) {
+    }
+
+    // Поля в порядке приоритета результатов
+    private enum Field {
+        PHONE, NAME, CITY
+    }
+
+    private record Document(String name, String city, String phone, String[] normalized) {
+    }
+
+    private final Map<Long, Postings> postings = new HashMap<>(); // (поле, тройка символов) -> ID клиентов
+    private final Map<Integer, Document> documents = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private volatile long generation; // Увеличивается при каждом изменении индекса
+
+    // Добавить клиента или заменить его данные
+    public void put(int clientId, String name, String city, String phone) {
+        Document document = document(name, city, phone);
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.put(clientId, document);
+            if (previous != null) {
+                unindex(clientId, previous);
+            }
+            index(clientId, document);
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Изменение одного параметра клиента (тип недвижимости в индекс не входит)
+    public void update(int clientId, ClientField field, String value) {
+        lock.writeLock().lock();
+        try {
+            Document current = documents.get(clientId);
+            if (current == null) {
+                return;
+            }
+            switch (field) {
+                case NAME -> put(clientId, value, current.city(), current.phone());
+                case CITY -> put(clientId, current.name(), value, current.phone());
+                case PHONE -> put(clientId, current.name(), current.city(), value);
+                default -> {
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(int clientId) {
+        lock.writeLock().lock();
+        try {
+            Document previous = documents.remove(clientId);
+            if (previous != null) {
+                unindex(clientId, previous);
+                generation++;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Поколение индекса: по нему проверяется, что сохраненный результат поиска еще актуален
+    public long generation() {
+        return generation;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            documents.clear();
+            generation++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Запрос слишком короткий для поиска по тройкам символов
+    public static boolean isTooShort(String query) {
+        return normalizeQuery(query).length() < MIN_QUERY_LENGTH;
+    }
+
+    // До limit клиентов: сначала совпадения в телефоне (окончание номера выше), затем в имени
+    // (начало слова выше), затем в городе; при равенстве — в порядке добавления
+    public List<Match> search(String query, int limit) {
+        String normalized = normalizeQuery(query);
+        if (normalized.length() < MIN_QUERY_LENGTH || limit <= 0) {
+            return List.of();
+        }
+        Field[] fields = isDigits(normalized) ? new Field[]{Field.PHONE} : new Field[]{Field.NAME, Field.CITY};
+
+        lock.readLock().lock();
+        try {
+            List<Integer> found = new ArrayList<>(limit);
+            for (Field field : fields) {
+                collect(field, normalized, limit, found);
+                if (found.size() >= limit) {
+                    break;
+                }
+            }
+            List<Match> matches = new ArrayList<>(found.size());
+            for (int clientId : found) {
+                Document document = documents.get(clientId);
+                matches.add(new Match(clientId, document.name(), document.city(), document.phone()));
+            }
+            return matches;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Совпадения в одном поле, дописываются к found (без повторов) до общего лимита.
+    // Сначала лучшие (по привязанным тройкам: начало слова имени, окончание телефона), затем остальные;
+    // кандидаты берутся из самого короткого списка троек запроса и проверяются подстрокой, просмотр
+    // прекращается, как только набран лимит
+    private void collect(Field field, String query, int limit, List<Integer> found) {
+        if (field != Field.CITY) {
+            int anchor = field == Field.PHONE ? query.length() - MIN_QUERY_LENGTH : 0;
+            Postings anchored = postings.get(key(field, ANCHORED, query, anchor));
+            if (anchored != null) {
+                String spaced = " " + query;
+                scan(anchored, field, limit, found,
+                        text -> field == Field.PHONE ? text.endsWith(query) : text.startsWith(query) || text.contains(spaced));
+            }
+        }
+        if (found.size() < limit) {
+            Postings shortest = shortest(field, query);
+            if (shortest != null) {
+                scan(shortest, field, limit, found, text -> text.contains(query));
+            }
+        }
+    }
+
+    private void scan(Postings candidates, Field field, int limit, List<Integer> found, Predicate<String> matches) {
+        for (int i = 0; i < candidates.size && found.size() < limit; i++) {
+            int clientId = candidates.ids[i];
+            if (matches.test(documents.get(clientId).normalized()[field.ordinal()]) && !found.contains(clientId)) {
+                found.add(clientId);
+            }
+        }
+    }
+
+    // Самый короткий из списков троек запроса; null, если какой-то тройки нет в индексе
+    private Postings shortest(Field field, String query) {
+        Postings shortest = null;
+        for (int i = 0; i + MIN_QUERY_LENGTH <= query.length(); i++) {
+            Postings list = postings.get(key(field, ANY, query, i));
+            if (list == null) {
+                return null;
+            }
+            if (shortest == null || list.size < shortest.size) {
+                shortest = list;
+            }
+        }
+        return shortest;
+    }
+
+    private void index(int clientId, Document document) {
+        for (Field field : Field.values()) {
+            String text = document.normalized()[field.ordinal()];
+            for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+                add(key(field, ANY, text, i), clientId);
+                if (isAnchor(field, text, i)) {
+                    add(key(field, ANCHORED, text, i), clientId);
+                }
+            }
+        }
+    }
+
+    private void unindex(int clientId, Document document) {
+        for (Field field : Field.values()) {
+            String text = document.normalized()[field.ordinal()];
+            for (int i = 0; i + MIN_QUERY_LENGTH <= text.length(); i++) {
+                remove(key(field, ANY, text, i), clientId);
+                if (isAnchor(field, text, i)) {
+                    remove(key(field, ANCHORED, text, i), clientId);
+                }
+            }
+        }
+    }
+
+    private void add(Long key, int clientId) {
+        postings.computeIfAbsent(key, k -> new Postings()).add(clientId);
+    }
+
+    private void remove(Long key, int clientId) {
+        Postings list = postings.get(key);
+        if (list != null && list.remove(clientId) && list.size == 0) {
+            postings.remove(key);
+        }
+    }
+
+    // Привязанная тройка: начало слова в имени или последние три цифры телефона
+    private static boolean isAnchor(Field field, String text, int i) {
+        return switch (field) {
+            case NAME -> i == 0 || text.charAt(i - 1) == ' ';
+            case PHONE -> i == text.length() - MIN_QUERY_LENGTH;
+            case CITY -> false;
+        };
+    }
+
+    // Ключ тройки символов text[i..i+2]: по 16 бит на символ, поле и вид списка — в старших битах
+    private static Long key(Field field, int kind, String text, int i) {
+        return ((long) (field.ordinal() * 2 + kind) << 48) | ((long) text.charAt(i) << 32)
+                | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2);
+    }
+
+    private static Document document(String name, String city, String phone) {
+        String[] normalized = new String[Field.values().length];
+        normalized[Field.PHONE.ordinal()] = digits(phone);
+        normalized[Field.NAME.ordinal()] = normalize(name);
+        normalized[Field.CITY.ordinal()] = normalize(city);
+        return new Document(name, city, phone, normalized);
+    }
+
+    // Запрос из цифр и знаков номера (+7 999 123-45-67) сводится к цифрам в формате 8XXXXXXXXXX
+    private static String normalizeQuery(String query) {
+        if (query == null) {
+            return "";
+        }
+        String normalized = normalize(query);
+        String digits = digits(query);
+        if (!digits.isEmpty() && isDigits(normalized.replace(" ", ""))) {
+            return digits.length() == 11 && digits.charAt(0) == '7' ? "8" + digits.substring(1) : digits;
+        }
+        return normalized;
+    }
+
+    // Нижний регистр, «ё» как «е», буквы и цифры; остальное — один пробел между словами
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        boolean gap = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = Character.toLowerCase(text.charAt(i));
+            if (c == 'ё') {
+                c = 'е';
+            }
+            if (Character.isLetterOrDigit(c)) {
+                if (gap && !out.isEmpty()) {
+                    out.append(' ');
+                }
+                out.append(c);
+                gap = false;
+            } else {
+                gap = true;
+            }
+        }
+        return out.toString();
+    }
+
+    private static String digits(String text) {
+        if (text == null) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c >= '0' && c <= '9') {
+                out.append(c);
+            }
+        }
+        return out.toString();
+    }
+
+    private static boolean isDigits(String text) {
+        if (text.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Отсортированный список ID клиентов
+    private static final class Postings {
+        private int[] ids = new int[4];
+        private int size;
+
+        void add(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return;
+            }
+            index = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            System.arraycopy(ids, index, ids, index + 1, size - index);
+            ids[index] = id;
+            size++;
+        }
+
+        boolean remove(int id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+    }
+}
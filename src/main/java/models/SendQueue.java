@@ -0,0 +1,447 @@
+package models;
+
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Асинхронная очередь исходящих запросов к Telegram:
+// общий лимит и лимит на чат (token bucket), приоритеты и повтор с паузой при ответе 429.
+// В каждом чате одновременно отправляется не больше одного запроса, поэтому сообщения приходят по порядку;
+// 429 останавливает весь чат до retry_after, а 429 сразу в нескольких чатах — и общий лимит
+public class SendQueue implements AutoCloseable {
+
+    // Приоритет отправки: меньший ordinal уходит раньше
+    public enum Priority {
+        REMINDER,     // Напоминания о звонках
+        INTERACTIVE,  // Ответы на действия пользователя
+        BULK          // Выгрузки файлов
+    }
+
+    // Вызов Telegram API, выполняемый очередью
+    @FunctionalInterface
+    public interface TelegramCall<T> {
+        T execute() throws TelegramApiException;
+    }
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final long LANE_IDLE_NANOS = TimeUnit.MINUTES.toNanos(1);
+    private static final long IDLE_WAIT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final long RATE_LIMIT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(1); // Окно, в котором считаются чаты с ответом 429
+    private static final int GLOBAL_PAUSE_CHATS = 3; // Столько чатов с 429 в одном окне — превышен общий лимит
+
+    private static final Metrics.Family<Metrics.Histogram> SEND_LATENCY = Metrics.global()
+            .histogram("bot_telegram_send_duration_seconds", "Отправка запроса в Telegram от постановки в очередь до ответа", "priority");
+    private static final Metrics.Family<Metrics.Counter> RATE_LIMITED = Metrics.global()
+            .counter("bot_telegram_rate_limited_total", "Ответы Telegram 429 (превышен лимит)", "priority");
+    private static final Metrics.Family<Metrics.Counter> FAILURES = Metrics.global()
+            .counter("bot_telegram_send_failures_total", "Запросы, не отправленные после всех попыток", "priority");
+    private static final Metrics.Counter GLOBAL_PAUSES = Metrics.global()
+            .counter("bot_telegram_global_pauses_total", "Паузы общего лимита после ответов 429 в нескольких чатах", null).labels();
+
+    private final TokenBucket globalBucket;
+    private final double chatRatePerSecond;
+    private final int chatBurst;
+
+    // Новые и завершенные запросы передаются потоку диспетчера
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition changed = lock.newCondition();
+    private final ArrayDeque<Job<?>> incoming = new ArrayDeque<>();
+    private final ArrayDeque<Job<?>> finished = new ArrayDeque<>();
+    private final AtomicInteger queued = new AtomicInteger();
+
+    private final AtomicLong sequence = new AtomicLong();
+    private final ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor();
+    private final ScheduledExecutorService retries = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "send-queue-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Thread dispatcher = new Thread(this::run, "send-queue");
+    private volatile boolean closed;
+
+    // Состояние чатов, отложенные пробуждения и запросы, ждущие общего лимита, — только в потоке диспетчера
+    private final Map<Long, ChatLane> lanes = new HashMap<>();
+    private final PriorityQueue<ChatLane> wakeups = new PriorityQueue<>((a, b) -> Long.compare(a.wakeAt, b.wakeAt));
+    private final PriorityQueue<Job<?>> runnable = new PriorityQueue<>();
+    private final Set<Long> rateLimitedChats = new HashSet<>();
+    private long rateLimitWindowStart;
+    private long lastLaneSweep = System.nanoTime();
+
+    // Лимиты Telegram: около 30 сообщений в секунду всего и 1 в секунду на чат
+    public SendQueue() {
+        this(30, 1, 3);
+    }
+
+    public SendQueue(double globalRatePerSecond, double chatRatePerSecond, int chatBurst) {
+        this.globalBucket = new TokenBucket(globalRatePerSecond, (int) Math.ceil(globalRatePerSecond));
+        this.chatRatePerSecond = chatRatePerSecond;
+        this.chatBurst = chatBurst;
+    }
+
+    // Запустить поток отправки (после создания очереди)
+    public SendQueue start() {
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        return this;
+    }
+
+    // Поставить вызов в очередь чата; результат придет в возвращаемый future.
+    // Запросы одного чата уходят по одному и по порядку: следующий — после ответа на предыдущий
+    public <T> CompletableFuture<T> submit(long chatId, Priority priority, TelegramCall<T> call) {
+        return enqueue(new Job<>(chatId, true, priority, sequence.incrementAndGet(), call));
+    }
+
+    // Вызов, который не считается сообщением в чат (например, ответ на инлайн-запрос): только общий лимит
+    public <T> CompletableFuture<T> submitGlobal(long chatId, Priority priority, TelegramCall<T> call) {
+        return enqueue(new Job<>(chatId, false, priority, sequence.incrementAndGet(), call));
+    }
+
+    // Количество запросов, ожидающих отправки
+    public int size() {
+        return queued.get();
+    }
+
+    private <T> CompletableFuture<T> enqueue(Job<T> job) {
+        if (closed) {
+            job.future.completeExceptionally(new IllegalStateException("Очередь отправки остановлена"));
+        } else {
+            queued.incrementAndGet();
+            post(incoming, job);
+        }
+        return job.future;
+    }
+
+    private void post(ArrayDeque<Job<?>> queue, Job<?> job) {
+        lock.lock();
+        try {
+            queue.add(job);
+            changed.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void run() {
+        List<Job<?>> accepted = new ArrayList<>();
+        List<Job<?>> completed = new ArrayList<>();
+        long waitNanos = 0;
+        while (!closed) {
+            try {
+                lock.lock();
+                try {
+                    if (incoming.isEmpty() && finished.isEmpty() && waitNanos > 0) {
+                        changed.awaitNanos(waitNanos);
+                    }
+                    accepted.addAll(incoming);
+                    incoming.clear();
+                    completed.addAll(finished);
+                    finished.clear();
+                } finally {
+                    lock.unlock();
+                }
+
+                long now = System.nanoTime();
+                for (Job<?> job : completed) {
+                    complete(job, now);
+                }
+                for (Job<?> job : accepted) {
+                    accept(job, now);
+                }
+                completed.clear();
+                accepted.clear();
+                releaseWakeups(now);
+                sweepLanes(now);
+
+                ChatLane next = wakeups.peek();
+                long untilWakeup = next != null ? Math.max(0, next.wakeAt - now) : IDLE_WAIT_NANOS;
+                waitNanos = Math.min(untilWakeup, startRunnable(now));
+            } catch (InterruptedException e) {
+                return;
+            } catch (Exception e) {
+                Log.error("Ошибка потока отправки", e);
+            }
+        }
+    }
+
+    // Новый запрос встает в очередь своего чата; запросы без чата сразу ждут общего лимита
+    private void accept(Job<?> job, long now) {
+        if (!job.perChat) {
+            runnable.add(job);
+            return;
+        }
+        ChatLane lane = lanes.computeIfAbsent(job.chatId, id -> new ChatLane(new TokenBucket(chatRatePerSecond, chatBurst)));
+        lane.lastUsed = now;
+        lane.waiting.add(job);
+        advance(lane, now);
+    }
+
+    // Ответ на запрос получен: чат может отправлять следующий. Повтор встает первым в своем чате,
+    // а чат не получает токенов до его времени (после 429 — до retry_after)
+    private void complete(Job<?> job, long now) {
+        if (job.retryNanos >= 0) {
+            queued.incrementAndGet();
+            if (job.rateLimited) {
+                noteRateLimit(job.chatId, now, job.retryNanos);
+            }
+        }
+        if (!job.perChat) {
+            if (job.retryNanos >= 0) {
+                retries.schedule(() -> post(incoming, job), job.retryNanos, TimeUnit.NANOSECONDS);
+            }
+            return;
+        }
+        ChatLane lane = lanes.get(job.chatId);
+        lane.inFlight = false;
+        lane.lastUsed = now;
+        if (job.retryNanos >= 0) {
+            lane.retry = job;
+            lane.bucket.pauseUntil(now + job.retryNanos);
+        }
+        advance(lane, now);
+    }
+
+    // Первый запрос чата передается на общий лимит, если предыдущий уже отправлен и в ведре чата есть токен
+    private void advance(ChatLane lane, long now) {
+        if (lane.inFlight || (lane.retry == null && lane.waiting.isEmpty())) {
+            return;
+        }
+        if (!lane.bucket.tryAcquire(now)) {
+            scheduleWakeup(lane, now + lane.bucket.nanosUntilAvailable(now));
+            return;
+        }
+        Job<?> job = lane.retry != null ? lane.retry : lane.waiting.poll();
+        lane.retry = null;
+        lane.inFlight = true;
+        runnable.add(job);
+    }
+
+    // Отправка запросов в порядке приоритета, пока есть токены общего лимита; возвращает время до следующего токена
+    private long startRunnable(long now) {
+        while (!runnable.isEmpty()) {
+            long wait = globalBucket.nanosUntilAvailable(now);
+            if (wait > 0) {
+                return wait;
+            }
+            globalBucket.tryAcquire(now);
+            Job<?> job = runnable.poll();
+            queued.decrementAndGet();
+            workers.execute(() -> execute(job));
+        }
+        return Long.MAX_VALUE;
+    }
+
+    private <T> void execute(Job<T> job) {
+        job.retryNanos = -1;
+        job.rateLimited = false;
+        try {
+            T result = job.call.execute();
+            SEND_LATENCY.labels(job.priority.name()).observeSince(job.submittedNanos);
+            job.future.complete(result);
+        } catch (TelegramApiRequestException e) {
+            Integer errorCode = e.getErrorCode();
+            if (errorCode != null && errorCode == 429) {
+                RATE_LIMITED.labels(job.priority.name()).increment();
+                job.rateLimited = true;
+                Integer retryAfter = e.getParameters() != null ? e.getParameters().getRetryAfter() : null;
+                retry(job, retryAfter != null ? TimeUnit.SECONDS.toMillis(retryAfter) : backoffMillis(job), e);
+            } else if (errorCode != null && errorCode >= 400 && errorCode < 500) {
+                fail(job, e);
+            } else {
+                retry(job, backoffMillis(job), e);
+            }
+        } catch (TelegramApiException e) {
+            retry(job, backoffMillis(job), e);
+        } catch (RuntimeException e) {
+            fail(job, e);
+        }
+        post(finished, job);
+    }
+
+    private void retry(Job<?> job, long delayMillis, Exception cause) {
+        job.attempts++;
+        if (job.attempts >= MAX_ATTEMPTS || closed) {
+            fail(job, cause);
+            return;
+        }
+        job.retryNanos = TimeUnit.MILLISECONDS.toNanos(delayMillis);
+    }
+
+    private long backoffMillis(Job<?> job) {
+        return 1000L << Math.min(job.attempts, 5);
+    }
+
+    private void fail(Job<?> job, Exception cause) {
+        Log.warn("Ошибка отправки в чат", cause, "chatId", job.chatId, "priority", job.priority);
+        FAILURES.labels(job.priority.name()).increment();
+        job.retryNanos = -1;
+        job.future.completeExceptionally(cause);
+    }
+
+    // 429 сразу в нескольких чатах означает превышение общего лимита: пауза для всех чатов
+    private void noteRateLimit(long chatId, long now, long retryNanos) {
+        if (now - rateLimitWindowStart > RATE_LIMIT_WINDOW_NANOS) {
+            rateLimitWindowStart = now;
+            rateLimitedChats.clear();
+        }
+        rateLimitedChats.add(chatId);
+        if (rateLimitedChats.size() >= GLOBAL_PAUSE_CHATS) {
+            globalBucket.pauseUntil(now + retryNanos);
+            rateLimitedChats.clear();
+            GLOBAL_PAUSES.increment();
+            Log.warn("Общий лимит Telegram превышен, отправка приостановлена", "pauseMs", TimeUnit.NANOSECONDS.toMillis(retryNanos));
+        }
+    }
+
+    // Чаты, время ожидания которых истекло, снова пробуют отправить первый запрос
+    private void releaseWakeups(long now) {
+        ChatLane lane;
+        while ((lane = wakeups.peek()) != null && lane.wakeAt <= now) {
+            wakeups.poll();
+            lane.wakeScheduled = false;
+            advance(lane, now);
+        }
+    }
+
+    private void scheduleWakeup(ChatLane lane, long wakeAt) {
+        if (lane.wakeScheduled) {
+            return;
+        }
+        lane.wakeAt = wakeAt;
+        lane.wakeScheduled = true;
+        wakeups.add(lane);
+    }
+
+    // Удаление состояний чатов, которые давно ничего не отправляли
+    private void sweepLanes(long now) {
+        if (now - lastLaneSweep < LANE_IDLE_NANOS) {
+            return;
+        }
+        lastLaneSweep = now;
+        Iterator<ChatLane> iterator = lanes.values().iterator();
+        while (iterator.hasNext()) {
+            ChatLane lane = iterator.next();
+            if (lane.waiting.isEmpty() && lane.retry == null && !lane.inFlight && !lane.wakeScheduled
+                    && now - lane.lastUsed > LANE_IDLE_NANOS) {
+                iterator.remove();
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        dispatcher.interrupt();
+        retries.shutdownNow();
+        workers.shutdown();
+    }
+
+    private static final class Job<T> implements Comparable<Job<?>> {
+        private final long chatId;
+        private final boolean perChat; // Запрос учитывается в лимите чата и в порядке его отправки
+        private final Priority priority;
+        private final long seq;
+        private final TelegramCall<T> call;
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+        private final long submittedNanos = System.nanoTime();
+        private int attempts;
+        private volatile long retryNanos = -1; // Пауза до повтора после последней попытки; -1 — повтора не будет
+        private volatile boolean rateLimited;  // Последняя попытка получила 429
+
+        private Job(long chatId, boolean perChat, Priority priority, long seq, TelegramCall<T> call) {
+            this.chatId = chatId;
+            this.perChat = perChat;
+            this.priority = priority;
+            this.seq = seq;
+            this.call = call;
+        }
+
+        @Override
+        public int compareTo(Job<?> other) {
+            int byPriority = priority.compareTo(other.priority);
+            return byPriority != 0 ? byPriority : Long.compare(seq, other.seq);
+        }
+    }
+
+    private static final class ChatLane {
+        private final TokenBucket bucket;
+        private final PriorityQueue<Job<?>> waiting = new PriorityQueue<>();
+        private Job<?> retry;     // Повтор, который уйдет раньше остальных запросов чата
+        private boolean inFlight; // Запрос чата отправлен, ответа еще нет
+        private long wakeAt;
+        private boolean wakeScheduled;
+        private long lastUsed;
+
+        private ChatLane(TokenBucket bucket) {
+            this.bucket = bucket;
+        }
+    }
+
+    // Ведро токенов: rate токенов в секунду, не больше capacity накопленных
+    private static final class TokenBucket {
+        private final double tokensPerNano;
+        private final int capacity;
+        private double tokens;
+        private long lastRefill = System.nanoTime();
+        private long resumeAt = Long.MIN_VALUE; // Пауза после ответа 429
+
+        private TokenBucket(double ratePerSecond, int capacity) {
+            this.tokensPerNano = ratePerSecond / TimeUnit.SECONDS.toNanos(1);
+            this.capacity = capacity;
+            this.tokens = capacity;
+        }
+
+        private boolean tryAcquire(long now) {
+            if (now < resumeAt) {
+                return false;
+            }
+            refill(now);
+            if (tokens >= 1) {
+                tokens -= 1;
+                return true;
+            }
+            return false;
+        }
+
+        private long nanosUntilAvailable(long now) {
+            if (now < resumeAt) {
+                return resumeAt - now;
+            }
+            refill(now);
+            return tokens >= 1 ? 0 : (long) Math.ceil((1 - tokens) / tokensPerNano);
+        }
+
+        // До until токенов нет, затем один (для повтора) и обычное пополнение
+        private void pauseUntil(long until) {
+            if (until > resumeAt) {
+                resumeAt = until;
+                lastRefill = until;
+                tokens = 1;
+            }
+        }
+
+        private void refill(long now) {
+            if (now > lastRefill) {
+                tokens = Math.min(capacity, tokens + (now - lastRefill) * tokensPerNano);
+                lastRefill = now;
+            }
+        }
+    }
+}
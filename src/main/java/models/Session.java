@@ -0,0 +1,135 @@
+package models;
+
+// Состояние диалога одного чата. Обновления чата обрабатываются по очереди (UpdateDispatcher),
+// поэтому поля меняются без блокировок
+public class Session {
+
+    public static final int NO_CLIENT = -1;
+
+    private final long chatId;
+    private ChatState state;
+
+    // Данные создаваемого клиента
+    private String draftName;
+    private String draftPhone;
+    private String draftCity;
+    private String draftPropertyType;
+
+    private int meetingClientId = NO_CLIENT;   // Клиент, которому назначается звонок
+    private int postponeClientId = NO_CLIENT;  // Клиент, чей звонок переносится
+    private int editClientId = NO_CLIENT;      // Клиент, данные которого меняются
+
+    private ExportFormat exportFormat = ExportFormat.TEXT;
+    private int lastMessageId;                 // ID последнего сообщения для редактирования
+
+    // Служебные поля SessionStore (меняются только под блокировкой сегмента)
+    long lastAccessNanos;                      // Время последнего обращения
+    Session lruPrev;                           // Соседи в списке LRU сегмента
+    Session lruNext;
+
+    public Session(long chatId) {
+        this.chatId = chatId;
+    }
+
+    public long getChatId() {
+        return chatId;
+    }
+
+    public ChatState getState() {
+        return state;
+    }
+
+    public void setState(ChatState state) {
+        this.state = state;
+    }
+
+    // Завершить диалог: сбросить состояние и промежуточные данные (настройки чата сохраняются)
+    public void reset() {
+        state = null;
+        clearDraft();
+        meetingClientId = NO_CLIENT;
+        postponeClientId = NO_CLIENT;
+        editClientId = NO_CLIENT;
+    }
+
+    // Начать ввод нового клиента
+    public void startDraft(String name) {
+        clearDraft();
+        draftName = name;
+    }
+
+    public void clearDraft() {
+        draftName = null;
+        draftPhone = null;
+        draftCity = null;
+        draftPropertyType = null;
+    }
+
+    public String getDraftName() {
+        return draftName;
+    }
+
+    public String getDraftPhone() {
+        return draftPhone;
+    }
+
+    public void setDraftPhone(String draftPhone) {
+        this.draftPhone = draftPhone;
+    }
+
+    public String getDraftCity() {
+        return draftCity;
+    }
+
+    public void setDraftCity(String draftCity) {
+        this.draftCity = draftCity;
+    }
+
+    public String getDraftPropertyType() {
+        return draftPropertyType;
+    }
+
+    public void setDraftPropertyType(String draftPropertyType) {
+        this.draftPropertyType = draftPropertyType;
+    }
+
+    public int getMeetingClientId() {
+        return meetingClientId;
+    }
+
+    public void setMeetingClientId(int meetingClientId) {
+        this.meetingClientId = meetingClientId;
+    }
+
+    public int getPostponeClientId() {
+        return postponeClientId;
+    }
+
+    public void setPostponeClientId(int postponeClientId) {
+        this.postponeClientId = postponeClientId;
+    }
+
+    public int getEditClientId() {
+        return editClientId;
+    }
+
+    public void setEditClientId(int editClientId) {
+        this.editClientId = editClientId;
+    }
+
+    public ExportFormat getExportFormat() {
+        return exportFormat;
+    }
+
+    public void setExportFormat(ExportFormat exportFormat) {
+        this.exportFormat = exportFormat;
+    }
+
+    public int getLastMessageId() {
+        return lastMessageId;
+    }
+
+    public void setLastMessageId(int lastMessageId) {
+        this.lastMessageId = lastMessageId;
+    }
+}
@@ -0,0 +1,267 @@
+package models;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// Сессии чатов по ID чата (примитивный long, без упаковки и строковых ключей).
+// Таблица разбита на сегменты со своей блокировкой; внутри сегмента — открытая адресация
+// с линейным пробированием и список LRU. Память ограничена: сессии, простаивающие дольше
+// idleTimeout, удаляются фоновой очисткой, а при превышении maxSessions вытесняются самые давние
+public class SessionStore implements AutoCloseable {
+
+    private static final int STRIPES = 16;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final long idleTimeoutNanos;
+    private final long sweepIntervalMillis;
+    private final ScheduledExecutorService sweeper;
+
+    public SessionStore(int maxSessions, Duration idleTimeout, Duration sweepInterval) {
+        int stripeCapacity = Math.max(1, (maxSessions + STRIPES - 1) / STRIPES);
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe(stripeCapacity);
+        }
+        this.idleTimeoutNanos = idleTimeout.toNanos();
+        this.sweepIntervalMillis = sweepInterval.toMillis();
+
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Запустить фоновую очистку простаивающих сессий (после создания хранилища)
+    public SessionStore start() {
+        sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis, TimeUnit.MILLISECONDS);
+        return this;
+    }
+
+    // Сессия чата или null, если ее нет (или она истекла)
+    public Session get(long chatId) {
+        int hash = hash(chatId);
+        return stripeFor(hash).get(chatId, hash, System.nanoTime());
+    }
+
+    // Сессия чата; создается при первом обращении
+    public Session getOrCreate(long chatId) {
+        int hash = hash(chatId);
+        return stripeFor(hash).getOrCreate(chatId, hash, System.nanoTime());
+    }
+
+    public void remove(long chatId) {
+        int hash = hash(chatId);
+        stripeFor(hash).remove(chatId, hash);
+    }
+
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            size += stripe.size();
+        }
+        return size;
+    }
+
+    // Удаление простаивающих сессий; в каждом сегменте просматриваются только истекшие (начало списка LRU)
+    private void sweep() {
+        try {
+            long now = System.nanoTime();
+            int removed = 0;
+            for (Stripe stripe : stripes) {
+                removed += stripe.expire(now);
+            }
+            if (removed > 0) {
+                Log.info("Удалены неактивные сессии", "removed", removed, "remaining", size());
+            }
+        } catch (Exception e) {
+            Log.error("Ошибка очистки сессий", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    private Stripe stripeFor(int hash) {
+        return stripes[hash >>> 28]; // Старшие биты выбирают сегмент, младшие — ячейку
+    }
+
+    // Перемешивание битов ID (финализатор MurmurHash3)
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    private final class Stripe {
+        private final int maxSize;
+        private long[] keys = new long[INITIAL_CAPACITY];
+        private Session[] values = new Session[INITIAL_CAPACITY]; // null — свободная ячейка
+        private int size;
+        private Session lruHead; // Самая давняя сессия
+        private Session lruTail; // Самая свежая сессия
+
+        private Stripe(int maxSize) {
+            this.maxSize = maxSize;
+        }
+
+        private synchronized Session get(long chatId, int hash, long now) {
+            int i = indexOf(chatId, hash);
+            if (i < 0) {
+                return null;
+            }
+            Session session = values[i];
+            if (isExpired(session, now)) {
+                removeAt(i);
+                return null;
+            }
+            touch(session, now);
+            return session;
+        }
+
+        private synchronized Session getOrCreate(long chatId, int hash, long now) {
+            int i = indexOf(chatId, hash);
+            if (i >= 0) {
+                Session session = values[i];
+                if (!isExpired(session, now)) {
+                    touch(session, now);
+                    return session;
+                }
+                removeAt(i);
+            }
+
+            // Сегмент заполнен: вытесняем самую давнюю сессию
+            if (size >= maxSize && lruHead != null) {
+                removeAt(indexOf(lruHead.getChatId(), hash(lruHead.getChatId())));
+            }
+
+            Session session = new Session(chatId);
+            int mask = keys.length - 1;
+            int slot = hash & mask;
+            while (values[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = chatId;
+            values[slot] = session;
+            session.lastAccessNanos = now;
+            linkLast(session);
+            if (++size > keys.length * 3 / 4) {
+                resize();
+            }
+            return session;
+        }
+
+        private synchronized void remove(long chatId, int hash) {
+            int i = indexOf(chatId, hash);
+            if (i >= 0) {
+                removeAt(i);
+            }
+        }
+
+        private synchronized int expire(long now) {
+            int removed = 0;
+            while (lruHead != null && isExpired(lruHead, now)) {
+                removeAt(indexOf(lruHead.getChatId(), hash(lruHead.getChatId())));
+                removed++;
+            }
+            return removed;
+        }
+
+        private synchronized int size() {
+            return size;
+        }
+
+        private boolean isExpired(Session session, long now) {
+            return now - session.lastAccessNanos > idleTimeoutNanos;
+        }
+
+        private int indexOf(long chatId, int hash) {
+            int mask = keys.length - 1;
+            for (int i = hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == chatId) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // Удаление ячейки со сдвигом следующих записей цепочки на освободившееся место (без "надгробий")
+        private void removeAt(int i) {
+            unlink(values[i]);
+            int mask = keys.length - 1;
+            int free = i;
+            values[free] = null;
+            size--;
+            for (int j = (free + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                boolean movable = free <= j ? (home <= free || home > j) : (home <= free && home > j);
+                if (movable) {
+                    keys[free] = keys[j];
+                    values[free] = values[j];
+                    values[j] = null;
+                    free = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Session[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Session[oldValues.length * 2];
+            int mask = keys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (values[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    keys[i] = oldKeys[j];
+                    values[i] = oldValues[j];
+                }
+            }
+        }
+
+        // Перенос сессии в конец списка LRU
+        private void touch(Session session, long now) {
+            session.lastAccessNanos = now;
+            if (session != lruTail) {
+                unlink(session);
+                linkLast(session);
+            }
+        }
+
+        private void linkLast(Session session) {
+            session.lruPrev = lruTail;
+            session.lruNext = null;
+            if (lruTail == null) {
+                lruHead = session;
+            } else {
+                lruTail.lruNext = session;
+            }
+            lruTail = session;
+        }
+
+        private void unlink(Session session) {
+            if (session.lruPrev == null) {
+                lruHead = session.lruNext;
+            } else {
+                session.lruPrev.lruNext = session.lruNext;
+            }
+            if (session.lruNext == null) {
+                lruTail = session.lruPrev;
+            } else {
+                session.lruNext.lruPrev = session.lruPrev;
+            }
+            session.lruPrev = null;
+            session.lruNext = null;
+        }
+    }
+}
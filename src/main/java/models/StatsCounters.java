@@ -0,0 +1,129 @@
+package models;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Счетчики для экрана статистики: обновляются при изменениях в боте,
+// загружаются одним запросом при старте и периодически сверяются с БД
+public class StatsCounters implements AutoCloseable {
+
+    public static final String RESULT_SUCCESS = "совершена";
+    public static final String RESULT_REFUSED = "отказ";
+
+    // Одна выборка вместо трех: количество клиентов и сделок по результатам
+    private static final String SNAPSHOT = "SELECT 'clients', COUNT(*) FROM clients " +
+            "UNION ALL SELECT result, COUNT(*) FROM deals GROUP BY result";
+
+    private final ConnectionPool pool;
+    private final AtomicLong clients = new AtomicLong();
+    private final AtomicLong successDeals = new AtomicLong();
+    private final AtomicLong refusedDeals = new AtomicLong();
+    private final long reconcileIntervalMinutes;
+    private final ScheduledExecutorService reconciler;
+
+    public StatsCounters(ConnectionPool pool, long reconcileIntervalMinutes) {
+        this.pool = pool;
+        this.reconcileIntervalMinutes = reconcileIntervalMinutes;
+        this.reconciler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stats-reconciler");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // Запустить периодическую сверку с БД (после создания счетчиков)
+    public StatsCounters start() {
+        reconciler.scheduleWithFixedDelay(this::reconcile, reconcileIntervalMinutes, reconcileIntervalMinutes, TimeUnit.MINUTES);
+        return this;
+    }
+
+    // Снимок счетчиков
+    public record Snapshot(long clients, long successDeals, long refusedDeals) {
+
+        public long totalDeals() {
+            return successDeals + refusedDeals;
+        }
+
+        // Доля совершенных сделок, %
+        public double conversionRate() {
+            long total = totalDeals();
+            return total > 0 ? successDeals * 100.0 / total : 0.0;
+        }
+    }
+
+    public Snapshot snapshot() {
+        return new Snapshot(clients.get(), successDeals.get(), refusedDeals.get());
+    }
+
+    public void clientAdded() {
+        clients.incrementAndGet();
+    }
+
+    public void clientsAdded(int count) {
+        clients.addAndGet(count);
+    }
+
+    public void clientRemoved() {
+        clients.decrementAndGet();
+    }
+
+    public void dealCompleted(String result) {
+        if (result.equals(RESULT_SUCCESS)) {
+            successDeals.incrementAndGet();
+        } else if (result.equals(RESULT_REFUSED)) {
+            refusedDeals.incrementAndGet();
+        }
+    }
+
+    // Загрузить значения из БД (при старте и при сверке)
+    public void load() throws SQLException {
+        long clientCount = 0;
+        long successCount = 0;
+        long refusedCount = 0;
+
+        try (PooledConnection connection = pool.acquire()) {
+            PreparedStatement statement = connection.prepare(SNAPSHOT);
+            try (ResultSet rs = statement.executeQuery()) {
+                while (rs.next()) {
+                    String kind = rs.getString(1);
+                    long count = rs.getLong(2);
+                    if ("clients".equals(kind)) {
+                        clientCount = count;
+                    } else if (RESULT_SUCCESS.equals(kind)) {
+                        successCount = count;
+                    } else if (RESULT_REFUSED.equals(kind)) {
+                        refusedCount = count;
+                    }
+                }
+            }
+        }
+
+        clients.set(clientCount);
+        successDeals.set(successCount);
+        refusedDeals.set(refusedCount);
+    }
+
+    // Изменение, пришедшее между выборкой и записью, может потеряться до следующей сверки
+    private void reconcile() {
+        try {
+            Snapshot before = snapshot();
+            load();
+            Snapshot after = snapshot();
+            if (!before.equals(after)) {
+                Log.info("Счетчики статистики сверены с БД", "before", before, "after", after);
+            }
+        } catch (Exception e) {
+            Log.warn("Ошибка сверки статистики", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        reconciler.shutdownNow();
+    }
+}
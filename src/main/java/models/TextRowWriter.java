@@ -0,0 +1,87 @@
+package models;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+// Текстовая выгрузка в прежнем виде: карточка из нескольких строк на каждую запись
+final class TextRowWriter implements RowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    private final BufferedWriter writer;
+    private int number;
+    private boolean firstField;
+
+    TextRowWriter(OutputStream out) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(String title, List<Column> columns) throws IOException {
+        writer.write(title);
+        writer.write('\n');
+        writer.write("=".repeat(50));
+        writer.write("\n\n");
+    }
+
+    @Override
+    public void beginRow(int number) {
+        this.number = number;
+        this.firstField = true;
+    }
+
+    @Override
+    public void text(Column column, String value) throws IOException {
+        label(column);
+        writer.write(String.valueOf(value));
+        writer.write('\n');
+    }
+
+    // Пустая дата не выводится
+    @Override
+    public void time(Column column, Timestamp value) throws IOException {
+        if (value != null) {
+            label(column);
+            FORMATTER.formatTo(value.toLocalDateTime(), writer);
+            writer.write('\n');
+        }
+    }
+
+    private void label(Column column) throws IOException {
+        if (firstField) {
+            writer.write(Integer.toString(number));
+            writer.write(". ");
+            firstField = false;
+        } else {
+            writer.write("   ");
+        }
+        writer.write(column.label());
+        writer.write(": ");
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write("-".repeat(30));
+        writer.write('\n');
+    }
+
+    @Override
+    public void finish(String totalLabel, int count) throws IOException {
+        writer.write('\n');
+        writer.write(totalLabel);
+        writer.write(": ");
+        writer.write(Integer.toString(count));
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,200 @@
+package models;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Хешированное колесо таймеров: задачи раскладываются по ячейкам (одна ячейка на тик),
+// добавление и отмена выполняются за O(1), наступившие задачи передаются пулу отправителей
+public class TimingWheel implements AutoCloseable {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Bucket[] buckets;
+    private final ExecutorService executor;
+    private final AtomicInteger pending = new AtomicInteger();
+    private final Thread ticker;
+
+    private volatile long processedTick; // Последний обработанный тик (номер тика от начала эпохи)
+    private volatile boolean closed;
+
+    // wheelSize округляется вверх до степени двойки
+    public TimingWheel(Duration tick, int wheelSize, ExecutorService executor) {
+        this.tickMillis = tick.toMillis();
+        int size = Integer.highestOneBit(Math.max(2, wheelSize) - 1) << 1;
+        this.mask = size - 1;
+        this.buckets = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            buckets[i] = new Bucket();
+        }
+        this.executor = executor;
+        this.processedTick = Math.floorDiv(System.currentTimeMillis(), tickMillis) - 1;
+
+        this.ticker = new Thread(this::run, "timing-wheel");
+        ticker.setDaemon(true);
+        ticker.start();
+    }
+
+    // Запланировать задачу на момент deadlineMillis (мс от начала эпохи)
+    public Timeout schedule(Runnable task, long deadlineMillis) {
+        long deadlineTick = Math.floorDiv(deadlineMillis, tickMillis);
+        Bucket bucket = buckets[(int) (deadlineTick & mask)];
+        Timeout timeout = new Timeout(this, bucket, task, deadlineMillis, deadlineTick);
+
+        boolean runNow;
+        synchronized (bucket) {
+            // Тик уже обработан: задача просрочена и выполняется сразу
+            runNow = deadlineTick <= processedTick;
+            if (!runNow) {
+                bucket.add(timeout);
+                pending.incrementAndGet();
+            }
+        }
+        if (runNow) {
+            timeout.state = Timeout.EXPIRED;
+            executor.execute(task);
+        }
+        return timeout;
+    }
+
+    // Количество задач, ожидающих выполнения
+    public int pendingCount() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (!closed) {
+            long nowTick = Math.floorDiv(System.currentTimeMillis(), tickMillis);
+            while (processedTick < nowTick) {
+                expire(processedTick + 1);
+            }
+
+            long sleepMillis = (nowTick + 1) * tickMillis - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                try {
+                    Thread.sleep(sleepMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    // Обработка одного тика: задачи этого тика уходят исполнителю, задачи следующих оборотов остаются
+    private void expire(long tick) {
+        Bucket bucket = buckets[(int) (tick & mask)];
+        List<Runnable> due = new ArrayList<>();
+        synchronized (bucket) {
+            processedTick = tick;
+            Timeout timeout = bucket.head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.deadlineTick <= tick) {
+                    bucket.remove(timeout);
+                    timeout.state = Timeout.EXPIRED;
+                    pending.decrementAndGet();
+                    due.add(timeout.task);
+                }
+                timeout = next;
+            }
+        }
+        for (Runnable task : due) {
+            executor.execute(task);
+        }
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        ticker.interrupt();
+        executor.shutdown();
+        try {
+            executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Ячейка колеса: двусвязный список задач
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        private void add(Timeout timeout) {
+            timeout.prev = tail;
+            if (tail == null) {
+                head = timeout;
+            } else {
+                tail.next = timeout;
+            }
+            tail = timeout;
+        }
+
+        private void remove(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+        }
+    }
+
+    // Запланированная задача; cancel() убирает ее из ячейки за O(1)
+    public static final class Timeout {
+        private static final int PENDING = 0;
+        private static final int EXPIRED = 1;
+        private static final int CANCELLED = 2;
+
+        private final TimingWheel wheel;
+        private final Bucket bucket;
+        private final Runnable task;
+        private final long deadlineMillis;
+        private final long deadlineTick;
+        private Timeout prev;
+        private Timeout next;
+        private volatile int state = PENDING;
+
+        private Timeout(TimingWheel wheel, Bucket bucket, Runnable task, long deadlineMillis, long deadlineTick) {
+            this.wheel = wheel;
+            this.bucket = bucket;
+            this.task = task;
+            this.deadlineMillis = deadlineMillis;
+            this.deadlineTick = deadlineTick;
+        }
+
+        // Отменить задачу; false, если она уже выполнена или отменена
+        public boolean cancel() {
+            synchronized (bucket) {
+                if (state != PENDING) {
+                    return false;
+                }
+                state = CANCELLED;
+                bucket.remove(this);
+                wheel.pending.decrementAndGet();
+                return true;
+            }
+        }
+
+        public boolean isCancelled() {
+            return state == CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state == EXPIRED;
+        }
+
+        public long getDeadlineMillis() {
+            return deadlineMillis;
+        }
+    }
+}
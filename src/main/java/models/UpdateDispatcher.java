@@ -0,0 +1,84 @@
+package models;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Диспетчер обновлений: обновления одного чата выполняются строго по очереди,
+// разные чаты обрабатываются параллельно на виртуальных потоках
+public class UpdateDispatcher {
+
+    private final Consumer<Update> handler;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<Long, CompletableFuture<Void>> lanes = new ConcurrentHashMap<>(); // Хвост очереди каждого чата
+
+    public UpdateDispatcher(Consumer<Update> handler) {
+        this.handler = handler;
+    }
+
+    // Поставить обновление в очередь его чата
+    public CompletableFuture<Void> dispatch(Update update) {
+        long chatId = chatIdOf(update);
+
+        CompletableFuture<Void> tail = lanes.compute(chatId, (id, previous) -> {
+            CompletableFuture<Void> base = previous != null ? previous : CompletableFuture.completedFuture(null);
+            return base.thenRunAsync(() -> run(chatId, update), executor);
+        });
+
+        // Очередь без ожидающих обновлений удаляется, чтобы карта не росла
+        tail.whenComplete((result, error) -> lanes.remove(chatId, tail));
+        return tail;
+    }
+
+    // Поставить в очереди пачку обновлений; результат завершается, когда обработаны все
+    public CompletableFuture<Void> dispatchAll(List<Update> updates) {
+        CompletableFuture<?>[] lanesDone = new CompletableFuture<?>[updates.size()];
+        for (int i = 0; i < lanesDone.length; i++) {
+            lanesDone[i] = dispatch(updates.get(i));
+        }
+        return CompletableFuture.allOf(lanesDone);
+    }
+
+    // Количество чатов, у которых есть необработанные обновления
+    public int activeLanes() {
+        return lanes.size();
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private void run(long chatId, Update update) {
+        Log.beginUpdate(chatId);
+        try {
+            handler.accept(update);
+        } catch (Exception e) {
+            Log.error("Ошибка обработки обновления", e, "updateId", update.getUpdateId());
+        } finally {
+            Log.endUpdate();
+        }
+    }
+
+    // Определение чата, к которому относится обновление
+    static long chatIdOf(Update update) {
+        if (update.hasMessage()) {
+            return update.getMessage().getChatId();
+        }
+        if (update.hasCallbackQuery()) {
+            if (update.getCallbackQuery().getMessage() != null) {
+                return update.getCallbackQuery().getMessage().getChatId();
+            }
+            return update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasInlineQuery()) {
+            return update.getInlineQuery().getFrom().getId(); // Запросы одного пользователя — по порядку
+        }
+        return 0L;
+    }
+}
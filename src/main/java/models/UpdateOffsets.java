@@ -0,0 +1,92 @@
+package models;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Номер последнего обработанного обновления. Пачки getUpdates завершаются в порядке получения:
+// номер сдвигается, только когда обработаны все обновления пачки и всех предыдущих,
+// и сохраняется в bot_state, чтобы после перезапуска продолжить с него без повторов.
+// Номер для getUpdates выбирает UpdatePoller: при медленной пачке он читает дальше этого номера
+public class UpdateOffsets {
+
+    private static final String STATE_NAME = "last_update_id";
+
+    private final BotStateRepository repository;
+    private volatile long committed;                // Все обновления с номером <= committed обработаны
+    private CompletableFuture<Void> tail = CompletableFuture.completedFuture(null); // Завершение последней пачки и всех предыдущих
+    private CompletableFuture<Void> latest = CompletableFuture.completedFuture(null); // Завершение только последней пачки
+
+    public UpdateOffsets(BotStateRepository repository) {
+        this.repository = repository;
+    }
+
+    // Загрузка сохраненного номера (выполняется один раз при запуске)
+    public void load() throws SQLException {
+        committed = repository.find(STATE_NAME).orElse(0);
+        Log.info("Последнее обработанное обновление", "updateId", committed);
+    }
+
+    public long committed() {
+        return committed;
+    }
+
+    // Отследить пачку обновлений; done завершается, когда обработаны все ее обновления
+    public synchronized void track(List<Update> batch, CompletableFuture<Void> done) {
+        long maxId = 0;
+        for (Update update : batch) {
+            maxId = Math.max(maxId, update.getUpdateId());
+        }
+        long batchMaxId = maxId;
+        latest = done;
+        tail = tail.thenCombine(done.exceptionally(error -> null), (previous, current) -> null)
+                .thenRun(() -> commit(batchMaxId));
+    }
+
+    // Дождаться обработки всех полученных пачек; false, если не успели за timeout
+    public boolean awaitProcessed(Duration timeout) throws InterruptedException {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = tail;
+        }
+        return await(pending, timeout);
+    }
+
+    // Дождаться обработки последней полученной пачки (без предыдущих); false, если не успели за timeout
+    public boolean awaitLatest(Duration timeout) throws InterruptedException {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = latest;
+        }
+        return await(pending, timeout);
+    }
+
+    private static boolean await(CompletableFuture<Void> pending, Duration timeout) throws InterruptedException {
+        try {
+            pending.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            return true;
+        } catch (TimeoutException e) {
+            return false;
+        } catch (ExecutionException e) {
+            return true; // Ошибки обработки уже учтены в commit
+        }
+    }
+
+    private void commit(long updateId) {
+        if (updateId <= committed) {
+            return;
+        }
+        committed = updateId;
+        try {
+            repository.save(STATE_NAME, updateId);
+        } catch (SQLException e) {
+            Log.error("Ошибка сохранения номера обновления", e, "updateId", updateId);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package models;
+
+import org.telegram.telegrambots.meta.api.methods.updates.GetUpdates;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.bots.AbsSender;
+import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
+
+import java.time.Duration;
+import java.util.List;
+
+// Чтение обновлений для DefaultBotSession. Смещение getUpdates — первое необработанное обновление
+// (UpdateOffsets), поэтому Telegram подтверждает обновление только после его обработки:
+// при падении бота полученные, но не обработанные обновления придут снова.
+// Если пачка обрабатывается дольше maxBatchWait (импорт, большая выгрузка, ожидание пула БД),
+// следующий запрос идет с первого еще не полученного обновления, чтобы один медленный чат не останавливал
+// прием для всех. Этим Telegram подтверждает и необработанные обновления: при падении бота в это время
+// они не придут повторно. Обработанное полностью сохраняется отдельно (UpdateOffsets)
+public class UpdatePoller implements DefaultBotSession.UpdatesSupplier {
+
+    private final AbsSender sender;
+    private final UpdateOffsets offsets;
+    private final int limit;
+    private final int timeoutSeconds;
+    private final Duration maxBatchWait;
+    private long lastReceived; // Обновления до этого номера уже переданы в обработку
+    private boolean readingAhead; // Прием идет дальше обработанного: какая-то пачка не успела за maxBatchWait
+
+    // limit — размер пачки (1-100), timeoutSeconds — время ожидания long polling,
+    // maxBatchWait — сколько ждать обработки предыдущей пачки перед следующим запросом
+    public UpdatePoller(AbsSender sender, UpdateOffsets offsets, int limit, int timeoutSeconds, Duration maxBatchWait) {
+        this.sender = sender;
+        this.offsets = offsets;
+        this.limit = limit;
+        this.timeoutSeconds = timeoutSeconds;
+        this.maxBatchWait = maxBatchWait;
+        this.lastReceived = offsets.committed();
+    }
+
+    @Override
+    public List<Update> getUpdates() throws Exception {
+        // Не перечитывать уже переданные в обработку обновления: при 100 и больше обновлениях
+        // за медленным ответ состоял бы только из них, и новые не читались бы до его завершения.
+        // Пока медленная пачка не завершилась, ждем только последнюю пачку, а не всю цепочку
+        if (!readingAhead && !offsets.awaitProcessed(maxBatchWait)) {
+            readingAhead = true;
+            Log.warn("Обработка обновлений дольше ожидания пачки, прием продолжается",
+                    "committed", offsets.committed(), "lastReceived", lastReceived);
+        } else if (readingAhead) {
+            offsets.awaitLatest(maxBatchWait);
+            if (offsets.committed() >= lastReceived) {
+                readingAhead = false;
+                Log.info("Обработка обновлений догнала прием", "committed", offsets.committed());
+            }
+        }
+        long offset = readingAhead ? lastReceived + 1 : offsets.committed() + 1;
+
+        List<Update> updates = sender.execute(GetUpdates.builder()
+                .offset((int) offset)
+                .limit(limit)
+                .timeout(timeoutSeconds)
+                .build());
+
+        updates.removeIf(update -> update.getUpdateId() <= lastReceived);
+        for (Update update : updates) {
+            lastReceived = Math.max(lastReceived, update.getUpdateId());
+        }
+        return updates;
+    }
+}
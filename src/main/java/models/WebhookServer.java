@@ -0,0 +1,111 @@
+package models;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+// Прием обновлений через webhook: встроенный HTTP-сервер, каждый запрос — на виртуальном потоке.
+// Обновление только разбирается и передается дальше (в очередь чата), ответ Telegram уходит сразу.
+// Локальная проверка:
+// curl -X POST localhost:8080/telegram -H "X-Telegram-Bot-Api-Secret-Token: <секрет>" -d @update.json
+public class WebhookServer implements AutoCloseable {
+
+    static final String SECRET_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+    private static final int MAX_BODY_BYTES = 1 << 20; // Обновления Telegram намного меньше 1 МБ
+
+    private static final ObjectMapper MAPPER = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false); // Новые поля Bot API не ломают разбор
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final String path;
+    private final byte[] secretToken;
+    private final Consumer<Update> sink;
+
+    public WebhookServer(InetSocketAddress address, String path, String secretToken, Consumer<Update> sink) throws IOException {
+        if (secretToken == null || secretToken.isEmpty()) {
+            throw new IllegalArgumentException("Не задан секретный токен webhook");
+        }
+        this.path = path;
+        this.secretToken = secretToken.getBytes(StandardCharsets.UTF_8);
+        this.sink = sink;
+        this.server = HttpServer.create(address, 0);
+        server.createContext(path, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        Log.info("Webhook принимает обновления", "address", server.getAddress(), "path", path);
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    @Override
+    public void close() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                respond(exchange, 405);
+                return;
+            }
+            if (!path.equals(exchange.getRequestURI().getPath())) {
+                respond(exchange, 404);
+                return;
+            }
+            if (!isSecretValid(exchange.getRequestHeaders().getFirst(SECRET_HEADER))) {
+                respond(exchange, 401);
+                return;
+            }
+
+            byte[] body;
+            try (InputStream in = exchange.getRequestBody()) {
+                body = in.readNBytes(MAX_BODY_BYTES + 1);
+            }
+            if (body.length > MAX_BODY_BYTES) {
+                respond(exchange, 413);
+                return;
+            }
+
+            Update update;
+            try {
+                update = MAPPER.readValue(body, Update.class);
+            } catch (IOException e) {
+                Log.warn("Некорректное обновление webhook", "error", e.getMessage());
+                respond(exchange, 400);
+                return;
+            }
+
+            sink.accept(update);
+            respond(exchange, 200);
+        } catch (Exception e) {
+            Log.error("Ошибка обработки запроса webhook", e);
+        }
+    }
+
+    // Сравнение за постоянное время, чтобы секрет нельзя было подобрать по времени ответа
+    private boolean isSecretValid(String header) {
+        return header != null && MessageDigest.isEqual(secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private void respond(HttpExchange exchange, int status) throws IOException {
+        exchange.sendResponseHeaders(status, -1);
+    }
+}
@@ -0,0 +1,194 @@
+package models;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+// Потоковая выгрузка в XLSX: служебные части книги пишутся сразу, лист — по строке за раз.
+// Строки хранятся как inline-значения, даты — числами Excel с форматом даты
+final class XlsxRowWriter implements RowWriter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final LocalDate EXCEL_EPOCH = LocalDate.of(1899, 12, 30);
+    private static final double SECONDS_PER_DAY = 24 * 60 * 60;
+
+    private static final String CONTENT_TYPES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Types xmlns="http://schemas.openxmlformats.org/package/2006/content-types">\
+            <Default Extension="rels" ContentType="application/vnd.openxmlformats-package.relationships+xml"/>\
+            <Default Extension="xml" ContentType="application/xml"/>\
+            <Override PartName="/xl/workbook.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml"/>\
+            <Override PartName="/xl/worksheets/sheet1.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml"/>\
+            <Override PartName="/xl/styles.xml" ContentType="application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml"/>\
+            </Types>""";
+
+    private static final String ROOT_RELS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument" Target="xl/workbook.xml"/>\
+            </Relationships>""";
+
+    private static final String WORKBOOK_RELS = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <Relationships xmlns="http://schemas.openxmlformats.org/package/2006/relationships">\
+            <Relationship Id="rId1" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet" Target="worksheets/sheet1.xml"/>\
+            <Relationship Id="rId2" Type="http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles" Target="styles.xml"/>\
+            </Relationships>""";
+
+    // Стиль 0 — обычная ячейка, 1 — дата, 2 — жирный заголовок
+    private static final String STYLES = """
+            <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+            <styleSheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+            <numFmts count="1"><numFmt numFmtId="164" formatCode="yyyy\\-mm\\-dd hh:mm"/></numFmts>\
+            <fonts count="2"><font><sz val="11"/><name val="Calibri"/></font><font><b/><sz val="11"/><name val="Calibri"/></font></fonts>\
+            <fills count="2"><fill><patternFill patternType="none"/></fill><fill><patternFill patternType="gray125"/></fill></fills>\
+            <borders count="1"><border><left/><right/><top/><bottom/><diagonal/></border></borders>\
+            <cellStyleXfs count="1"><xf numFmtId="0" fontId="0" fillId="0" borderId="0"/></cellStyleXfs>\
+            <cellXfs count="3">\
+            <xf numFmtId="0" fontId="0" fillId="0" borderId="0" xfId="0"/>\
+            <xf numFmtId="164" fontId="0" fillId="0" borderId="0" xfId="0" applyNumberFormat="1"/>\
+            <xf numFmtId="0" fontId="1" fillId="0" borderId="0" xfId="0" applyFont="1"/>\
+            </cellXfs>\
+            </styleSheet>""";
+
+    private final ZipOutputStream zip;
+    private final BufferedWriter writer;
+
+    XlsxRowWriter(OutputStream out) {
+        this.zip = new ZipOutputStream(new BufferedOutputStream(out, BUFFER_SIZE), StandardCharsets.UTF_8);
+        zip.setLevel(Deflater.BEST_SPEED); // Разметка листа сильно повторяется: быстрое сжатие дает почти тот же размер
+        this.writer = new BufferedWriter(new OutputStreamWriter(zip, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    @Override
+    public void begin(String title, List<Column> columns) throws IOException {
+        entry("[Content_Types].xml", CONTENT_TYPES);
+        entry("_rels/.rels", ROOT_RELS);
+        entry("xl/_rels/workbook.xml.rels", WORKBOOK_RELS);
+        entry("xl/styles.xml", STYLES);
+
+        zip.putNextEntry(new ZipEntry("xl/workbook.xml"));
+        writer.write("""
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <workbook xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main" \
+                xmlns:r="http://schemas.openxmlformats.org/officeDocument/2006/relationships">\
+                <sheets><sheet name=\"""");
+        escaped(sheetName(title));
+        writer.write("\" sheetId=\"1\" r:id=\"rId1\"/></sheets></workbook>");
+        writer.flush();
+        zip.closeEntry();
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        writer.write("""
+                <?xml version="1.0" encoding="UTF-8" standalone="yes"?>
+                <worksheet xmlns="http://schemas.openxmlformats.org/spreadsheetml/2006/main">\
+                <sheetData><row>""");
+        for (Column column : columns) {
+            writer.write("<c t=\"inlineStr\" s=\"2\"><is><t>");
+            escaped(column.label());
+            writer.write("</t></is></c>");
+        }
+        writer.write("</row>");
+    }
+
+    @Override
+    public void beginRow(int number) throws IOException {
+        writer.write("<row>");
+    }
+
+    @Override
+    public void text(Column column, String value) throws IOException {
+        if (value == null) {
+            writer.write("<c/>");
+            return;
+        }
+        writer.write("<c t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+        escaped(value);
+        writer.write("</t></is></c>");
+    }
+
+    @Override
+    public void time(Column column, Timestamp value) throws IOException {
+        if (value == null) {
+            writer.write("<c/>");
+            return;
+        }
+        writer.write("<c s=\"1\"><v>");
+        writer.write(Double.toString(serial(value.toLocalDateTime())));
+        writer.write("</v></c>");
+    }
+
+    @Override
+    public void endRow() throws IOException {
+        writer.write("</row>");
+    }
+
+    // Итог не пишется: лист должен оставаться таблицей
+    @Override
+    public void finish(String totalLabel, int count) throws IOException {
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+
+    private void entry(String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    // Дата Excel: число дней от 30.12.1899, время — дробная часть
+    private static double serial(LocalDateTime time) {
+        long days = ChronoUnit.DAYS.between(EXCEL_EPOCH, time.toLocalDate());
+        return days + time.toLocalTime().toSecondOfDay() / SECONDS_PER_DAY;
+    }
+
+    // Имя листа: не длиннее 31 символа и без символов, запрещенных Excel
+    private static String sheetName(String title) {
+        String name = title.replaceAll("[\\[\\]:*?/\\\\]", " ").trim();
+        return name.length() > 31 ? name.substring(0, 31).trim() : name;
+    }
+
+    // Экранирование XML; управляющие символы, недопустимые в XML, пропускаются
+    private void escaped(String value) throws IOException {
+        int length = value.length();
+        int start = 0;
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            String replacement;
+            if (c == '&') {
+                replacement = "&amp;";
+            } else if (c == '<') {
+                replacement = "&lt;";
+            } else if (c == '>') {
+                replacement = "&gt;";
+            } else if (c == '"') {
+                replacement = "&quot;";
+            } else if (c < 0x20 && c != '\t' && c != '\n' && c != '\r') {
+                replacement = "";
+            } else {
+                continue;
+            }
+            writer.write(value, start, i - start);
+            writer.write(replacement);
+            start = i + 1;
+        }
+        writer.write(value, start, length - start);
+    }
+}
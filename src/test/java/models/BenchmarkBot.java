@@ -0,0 +1,131 @@
+package models;
+
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+
+// Окружение бенчмарков: бот на встроенной БД H2 в режиме MySQL и очередь отправки,
+// которая ничего не отправляет в Telegram
+final class BenchmarkBot {
+
+    static final long CHAT_ID = 100_000L;
+    static final int MESSAGE_ID = 1;
+
+    private static final PrintStream STDOUT = System.out;
+
+    private BenchmarkBot() {
+    }
+
+    // Пул соединений к отдельной БД в памяти (живет до конца процесса)
+    static ConnectionPool database(String name) {
+        return new ConnectionPool("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;NON_KEYWORDS=VALUE;DB_CLOSE_DELAY=-1",
+                "sa", "", 10);
+    }
+
+    // Бот на указанной БД (таблицы создаются при запуске бота)
+    static Bot create(ConnectionPool pool) {
+        return create(pool, new NoopSendQueue());
+    }
+
+    static Bot create(ConnectionPool pool, SendQueue sendQueue) {
+        return new Bot(new DefaultBotOptions(), pool, sendQueue).start();
+    }
+
+    // Клиенты с телефонами 80000000000, 80000000001, ... и звонками в ближайшие дни
+    static void insertClients(ConnectionPool pool, int count) throws SQLException {
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        PropertyType[] types = PropertyType.values();
+        try (PooledConnection connection = pool.acquire();
+             PreparedStatement statement = connection.prepareStatement(
+                     "INSERT INTO clients (name, phone, city, property_type, meeting_time) VALUES (?, ?, ?, ?, ?)")) {
+            for (int i = 0; i < count; i++) {
+                statement.setString(1, "Клиент " + i);
+                statement.setString(2, phone(i));
+                statement.setString(3, "Москва");
+                statement.setString(4, types[i % types.length].getValue());
+                statement.setTimestamp(5, Timestamp.valueOf(start.plusMinutes(i)));
+                statement.addBatch();
+                if (i % 1000 == 999) {
+                    statement.executeBatch();
+                }
+            }
+            statement.executeBatch();
+        }
+    }
+
+    static String phone(int i) {
+        return String.valueOf(80_000_000_000L + i);
+    }
+
+    static Update message(String text) {
+        return message(CHAT_ID, text);
+    }
+
+    static Update message(long chatId, String text) {
+        Message message = new Message();
+        message.setMessageId(MESSAGE_ID);
+        message.setChat(chat(chatId));
+        message.setText(text);
+
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+
+    static Update callback(String data) {
+        return callback(CHAT_ID, data);
+    }
+
+    static Update callback(long chatId, String data) {
+        Message message = new Message();
+        message.setMessageId(MESSAGE_ID);
+        message.setChat(chat(chatId));
+
+        CallbackQuery query = new CallbackQuery();
+        query.setId("1");
+        query.setFrom(new User(chatId, "Бенчмарк", false));
+        query.setMessage(message);
+        query.setData(data);
+
+        Update update = new Update();
+        update.setCallbackQuery(query);
+        return update;
+    }
+
+    // Журнал бота в консоль на время замера отключается, чтобы не мерить вывод в терминал
+    static void muteConsole() {
+        Log.flush();
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    static void restoreConsole() {
+        Log.flush();
+        System.setOut(STDOUT);
+    }
+
+    private static Chat chat(long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setType("private");
+        return chat;
+    }
+
+    // Очередь отправки без обращения к Telegram: вызов сразу считается выполненным
+    static final class NoopSendQueue extends SendQueue {
+        @Override
+        public <T> CompletableFuture<T> submit(long chatId, Priority priority, TelegramCall<T> call) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Обработка нажатия кнопки целиком (handleCallbackQuery): разбор данных кнопки, маршрутизация
+// и обработчик с ответом в очередь отправки. БД — H2 в памяти, Telegram не вызывается
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CallbackDispatchBenchmark {
+
+    @Param({"MAIN_MENU", "CLIENTS_MENU", "STATISTICS", "UPCOMING"})
+    private String action;
+
+    private ConnectionPool pool;
+    private Bot bot;
+    private Update update;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkBot.muteConsole();
+        pool = BenchmarkBot.database("callbacks");
+        bot = BenchmarkBot.create(pool);
+        BenchmarkBot.insertClients(pool, 1_000);
+        update = BenchmarkBot.callback(Callback.valueOf(action).data());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkBot.restoreConsole();
+        pool.close();
+    }
+
+    @Benchmark
+    public void dispatch() {
+        bot.processUpdate(update);
+    }
+
+    // Только разбор данных кнопки (без обработчика)
+    @Benchmark
+    public Callback.Command decode() {
+        return Callback.decode(update.getCallbackQuery().getData());
+    }
+}
@@ -0,0 +1,66 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+// Импорт файла CSV с 50 тысячами клиентов в пустую таблицу: разбор, проверка строк и пакетная вставка
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ClientImportBenchmark {
+
+    @Param({"50000"})
+    private int rows;
+
+    private ConnectionPool pool;
+    private byte[] file;
+    private ClientImporter importer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkBot.muteConsole();
+        pool = BenchmarkBot.database("import");
+        BenchmarkBot.create(pool); // Создание таблиц
+
+        StringBuilder csv = new StringBuilder("Имя,Телефон,Город,Тип недвижимости,Звонок\r\n");
+        for (int i = 0; i < rows; i++) {
+            csv.append("Клиент ").append(i).append(',')
+                    .append(BenchmarkBot.phone(i)).append(',')
+                    .append(i % 2 == 0 ? "Москва" : "Казань").append(',')
+                    .append(PropertyType.byOrdinal(i % PropertyType.values().length).getValue()).append(',')
+                    .append(i % 10 == 0 ? "2099-01-01 10:00" : "").append("\r\n");
+        }
+        file = csv.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    // Каждый импорт — в пустую таблицу с пустыми индексами
+    @Setup(Level.Iteration)
+    public void clearClients() throws SQLException {
+        try (PooledConnection connection = pool.acquire();
+             Statement statement = connection.createStatement()) {
+            statement.execute("DELETE FROM clients");
+        }
+        ClientRepository repository = new ClientRepository(pool);
+        repository.loadIndexes();
+        importer = new ClientImporter(repository);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkBot.restoreConsole();
+        pool.close();
+    }
+
+    @Benchmark
+    public int importClients() {
+        return importer.importCsv(new ByteArrayInputStream(file), BenchmarkBot.CHAT_ID).imported();
+    }
+}
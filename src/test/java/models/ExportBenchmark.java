@@ -0,0 +1,55 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Формирование файла выгрузки всех клиентов в каждом формате (потоковое чтение из БД и запись файла);
+// размер получившегося файла печатается в конце прогона
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExportBenchmark {
+
+    @Param({"10000", "100000"})
+    private int clients;
+
+    @Param({"TEXT", "CSV", "XLSX"})
+    private ExportFormat format;
+
+    private ConnectionPool pool;
+    private ClientExporter exporter;
+    private long fileBytes;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkBot.muteConsole();
+        pool = BenchmarkBot.database("export");
+        BenchmarkBot.create(pool); // Создание таблиц
+        BenchmarkBot.insertClients(pool, clients);
+        exporter = new ClientExporter(pool);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkBot.restoreConsole();
+        System.out.printf("%n%s, клиентов: %d, размер файла: %d байт%n", format, clients, fileBytes);
+        pool.close();
+    }
+
+    @Benchmark
+    public long exportAllClients() throws SQLException, IOException {
+        ClientExporter.Export export = exporter.exportAllClients(format);
+        try {
+            fileBytes = export.file().toFile().length();
+            return fileBytes;
+        } finally {
+            export.delete();
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package models;
+
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+// Нагрузочный прогон: N агентов (отдельные чаты) одновременно проходят типичные сценарии —
+// новый клиент, назначение звонка, перенос, завершение сделки и выгрузка. Обновления идут
+// через очередь бота (как из onUpdateReceived), отправка в Telegram заменена счетчиком.
+// Печатаются p50/p95/p99 по каждому сценарию и пропускная способность в обновлениях в секунду.
+// Запуск: mvn -P load verify -Dload.args="agents=50 iterations=20"
+// Параметры: agents, iterations, exportEvery (выгрузка на каждой N-й итерации агента),
+// jdbcUrl, user, password (по умолчанию — H2 в памяти, иначе например локальная MySQL), poolSize
+public class LoadGenerator {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    enum Flow {
+        ADD_CLIENT, SCHEDULE, POSTPONE, COMPLETE, EXPORT
+    }
+
+    private final Bot bot;
+    private final ClientRepository clients;
+    private final int iterations;
+    private final int exportEvery;
+    private final LongAdder updates = new LongAdder();
+
+    LoadGenerator(Bot bot, ClientRepository clients, int iterations, int exportEvery) {
+        this.bot = bot;
+        this.clients = clients;
+        this.iterations = iterations;
+        this.exportEvery = exportEvery;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        int agents = Integer.parseInt(options.getOrDefault("agents", "50"));
+        int iterations = Integer.parseInt(options.getOrDefault("iterations", "20"));
+        int exportEvery = Integer.parseInt(options.getOrDefault("exportEvery", "5"));
+        String jdbcUrl = options.get("jdbcUrl");
+        int poolSize = Integer.parseInt(options.getOrDefault("poolSize", "10"));
+
+        ConnectionPool pool = jdbcUrl != null
+                ? new ConnectionPool(jdbcUrl, options.getOrDefault("user", "root"), options.getOrDefault("password", ""), poolSize)
+                : BenchmarkBot.database("load");
+        RecordingSendQueue recorder = new RecordingSendQueue();
+
+        BenchmarkBot.muteConsole();
+        Bot bot = BenchmarkBot.create(pool, recorder);
+        LoadGenerator generator = new LoadGenerator(bot, new ClientRepository(pool), iterations, exportEvery);
+
+        Map<Flow, long[]> latencies;
+        long elapsedNanos;
+        try {
+            long start = System.nanoTime();
+            latencies = generator.run(agents);
+            elapsedNanos = System.nanoTime() - start;
+        } finally {
+            BenchmarkBot.restoreConsole();
+        }
+
+        System.out.printf("Агентов: %d, итераций на агента: %d, БД: %s%n", agents, iterations, jdbcUrl != null ? jdbcUrl : "H2 в памяти");
+        System.out.printf("%-12s %8s %10s %10s %10s %10s%n", "Сценарий", "Кол-во", "p50, мс", "p95, мс", "p99, мс", "max, мс");
+        for (Map.Entry<Flow, long[]> entry : latencies.entrySet()) {
+            long[] sorted = entry.getValue();
+            System.out.printf("%-12s %8d %10.2f %10.2f %10.2f %10.2f%n", entry.getKey(), sorted.length,
+                    millis(percentile(sorted, 50)), millis(percentile(sorted, 95)),
+                    millis(percentile(sorted, 99)), millis(percentile(sorted, 100)));
+        }
+        double seconds = elapsedNanos / 1e9;
+        long total = generator.updates.sum();
+        System.out.printf("Обновлений: %d за %.1f с, пропускная способность: %.0f обновлений/с%n", total, seconds, total / seconds);
+        System.out.println("Запросов к Telegram: " + recorder.counts());
+
+        pool.close();
+        System.exit(0);
+    }
+
+    // Запуск агентов; результат — отсортированные длительности сценариев в наносекундах
+    Map<Flow, long[]> run(int agents) throws Exception {
+        List<Future<Map<Flow, List<Long>>>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int agent = 0; agent < agents; agent++) {
+                int agentId = agent;
+                results.add(executor.submit(() -> runAgent(agentId)));
+            }
+        }
+
+        Map<Flow, List<Long>> merged = new EnumMap<>(Flow.class);
+        for (Future<Map<Flow, List<Long>>> result : results) {
+            result.get().forEach((flow, times) -> merged.computeIfAbsent(flow, f -> new ArrayList<>()).addAll(times));
+        }
+        Map<Flow, long[]> sorted = new EnumMap<>(Flow.class);
+        merged.forEach((flow, times) -> {
+            long[] values = times.stream().mapToLong(Long::longValue).toArray();
+            Arrays.sort(values);
+            sorted.put(flow, values);
+        });
+        return sorted;
+    }
+
+    // Один агент: свой чат и свои клиенты, сценарии выполняются по порядку
+    private Map<Flow, List<Long>> runAgent(int agent) throws Exception {
+        long chatId = 1_000_000L + agent;
+        Map<Flow, List<Long>> times = new EnumMap<>(Flow.class);
+
+        for (int i = 0; i < iterations; i++) {
+            String phone = String.format("8%04d%06d", agent, i);
+            String name = "Агент " + agent + " клиент " + i;
+
+            time(times, Flow.ADD_CLIENT,
+                    BenchmarkBot.callback(chatId, Callback.ADD_CLIENT.data()),
+                    BenchmarkBot.message(chatId, name),
+                    BenchmarkBot.message(chatId, phone),
+                    BenchmarkBot.message(chatId, "Москва"),
+                    BenchmarkBot.callback(chatId, Callback.CREATE_TYPE.data(i % PropertyType.values().length)),
+                    BenchmarkBot.message(chatId, meetingTime()));
+
+            Optional<Client> client = clients.findByPhone(phone);
+            if (client.isEmpty()) {
+                continue; // Клиент не сохранился (ошибка записи в БД); сценарии с ним пропускаются
+            }
+            int clientId = client.get().id();
+
+            time(times, Flow.SCHEDULE,
+                    BenchmarkBot.callback(chatId, Callback.SCHEDULE_SEARCH.data()),
+                    BenchmarkBot.message(chatId, phone),
+                    BenchmarkBot.callback(chatId, Callback.SCHEDULE_CLIENT.data(clientId)),
+                    BenchmarkBot.message(chatId, meetingTime()));
+
+            time(times, Flow.POSTPONE,
+                    BenchmarkBot.callback(chatId, Callback.POSTPONE.data(clientId)),
+                    BenchmarkBot.callback(chatId, Callback.POSTPONE_HOURS.data()),
+                    BenchmarkBot.message(chatId, "2"));
+
+            time(times, Flow.COMPLETE,
+                    BenchmarkBot.callback(chatId, Callback.COMPLETE.data(clientId)),
+                    BenchmarkBot.callback(chatId, Callback.DEAL_RESULT.data(clientId, i % 2)));
+
+            if (exportEvery > 0 && i % exportEvery == exportEvery - 1) {
+                time(times, Flow.EXPORT,
+                        BenchmarkBot.callback(chatId, Callback.CLIENTS_MENU.data()),
+                        BenchmarkBot.callback(chatId, Callback.ALL_CLIENTS.data()));
+            }
+        }
+        return times;
+    }
+
+    // Сценарий: обновления отправляются по одному, следующее — после обработки предыдущего
+    private void time(Map<Flow, List<Long>> times, Flow flow, Update... steps) {
+        long start = System.nanoTime();
+        for (Update step : steps) {
+            bot.enqueue(step).join();
+        }
+        times.computeIfAbsent(flow, f -> new ArrayList<>()).add(System.nanoTime() - start);
+        updates.add(steps.length);
+    }
+
+    private static String meetingTime() {
+        return LocalDateTime.now().plusDays(1).plusMinutes(ThreadLocalRandom.current().nextInt(10_080)).format(FORMAT);
+    }
+
+    // Процентиль по отсортированному массиву (метод ближайшего ранга)
+    static long percentile(long[] sorted, double percent) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percent / 100.0 * sorted.length);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq > 0) {
+                options.put(arg.substring(0, eq), arg.substring(eq + 1));
+            }
+        }
+        return options;
+    }
+
+    // Очередь отправки, которая только считает запросы к Telegram по приоритету
+    static final class RecordingSendQueue extends SendQueue {
+        private final Map<Priority, LongAdder> counts = new EnumMap<>(Priority.class);
+
+        RecordingSendQueue() {
+            for (Priority priority : Priority.values()) {
+                counts.put(priority, new LongAdder());
+            }
+        }
+
+        @Override
+        public <T> CompletableFuture<T> submit(long chatId, Priority priority, TelegramCall<T> call) {
+            counts.get(priority).increment();
+            return CompletableFuture.completedFuture(null);
+        }
+
+        Map<Priority, Long> counts() {
+            Map<Priority, Long> snapshot = new EnumMap<>(Priority.class);
+            counts.forEach((priority, count) -> snapshot.put(priority, count.sum()));
+            return snapshot;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.concurrent.TimeUnit;
+
+// Планирование уведомлений о звонке через бота (scheduleMeetingNotifications) и их отмена
+// при заданном числе уже запланированных звонков
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MeetingNotificationsBenchmark {
+
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final int CLIENT_ID = -1; // Вне диапазона заранее запланированных звонков
+
+    @Param({"10000", "100000"})
+    private int pendingMeetings;
+
+    private ConnectionPool pool;
+    private Bot bot;
+    private String meetingTime;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        BenchmarkBot.muteConsole();
+        pool = BenchmarkBot.database("meetings");
+        bot = BenchmarkBot.create(pool);
+
+        LocalDateTime start = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < pendingMeetings; i++) {
+            bot.scheduleMeetingNotifications(BenchmarkBot.CHAT_ID, i, "Клиент " + i, BenchmarkBot.phone(i),
+                    start.plusMinutes(i % 10_080).format(FORMAT));
+        }
+        meetingTime = start.plusHours(12).format(FORMAT);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkBot.restoreConsole();
+        pool.close();
+    }
+
+    @Benchmark
+    public int scheduleAndCancel() {
+        bot.scheduleMeetingNotifications(BenchmarkBot.CHAT_ID, CLIENT_ID, "Иван Петров", "89990000000", meetingTime);
+        return bot.cancelMeetingNotifications(CLIENT_ID);
+    }
+}
@@ -0,0 +1,68 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+// Обработка текстовых сообщений по состоянию диалога (handleMessage): полный ввод нового клиента
+// до выбора типа недвижимости и поиск клиента по телефону. БД — H2 в памяти, Telegram не вызывается
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MessageStateBenchmark {
+
+    private static final int CLIENTS = 10_000;
+
+    private ConnectionPool pool;
+    private Bot bot;
+
+    private Update addClient;
+    private Update name;
+    private Update freePhone;
+    private Update city;
+    private Update editSearch;
+    private Update existingPhone;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        BenchmarkBot.muteConsole();
+        pool = BenchmarkBot.database("messages");
+        BenchmarkBot.create(pool); // Создание таблиц
+        BenchmarkBot.insertClients(pool, CLIENTS);
+        bot = BenchmarkBot.create(pool); // Индекс телефонов загружается с клиентами
+
+        addClient = BenchmarkBot.callback(Callback.ADD_CLIENT.data());
+        name = BenchmarkBot.message("Иван Петров");
+        freePhone = BenchmarkBot.message(BenchmarkBot.phone(CLIENTS));
+        city = BenchmarkBot.message("Москва");
+        editSearch = BenchmarkBot.callback(Callback.EDIT_SEARCH.data());
+        existingPhone = BenchmarkBot.message(BenchmarkBot.phone(CLIENTS / 2));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        BenchmarkBot.restoreConsole();
+        pool.close();
+    }
+
+    // Имя, телефон (с проверкой занятости) и город нового клиента
+    @Benchmark
+    public void newClientDialog() {
+        bot.processUpdate(addClient);
+        bot.processUpdate(name);
+        bot.processUpdate(freePhone);
+        bot.processUpdate(city);
+    }
+
+    // Поиск существующего клиента по телефону для изменения
+    @Benchmark
+    public void searchForEdit() {
+        bot.processUpdate(editSearch);
+        bot.processUpdate(existingPhone);
+    }
+}
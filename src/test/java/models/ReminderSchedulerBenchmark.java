@@ -0,0 +1,67 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+// Сравнение планировщиков уведомлений: ScheduledThreadPoolExecutor(10) против TimingWheel
+// при заданном числе уже ожидающих звонков (добавление и отмена одной задачи)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReminderSchedulerBenchmark {
+
+    private static final Runnable NOOP = () -> { };
+    private static final long WEEK_MILLIS = Duration.ofDays(7).toMillis();
+
+    @Param({"10000", "100000"})
+    private int pendingReminders;
+
+    private ScheduledThreadPoolExecutor executor;
+    private TimingWheel wheel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        executor = new ScheduledThreadPoolExecutor(10);
+        // Отмененные задачи удаляются из кучи, иначе она растет на протяжении замера
+        executor.setRemoveOnCancelPolicy(true);
+        wheel = new TimingWheel(Duration.ofMinutes(1), 4096, Executors.newFixedThreadPool(4));
+
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < pendingReminders; i++) {
+            long delay = Duration.ofHours(1).toMillis() + randomDelay();
+            executor.schedule(NOOP, delay, TimeUnit.MILLISECONDS);
+            wheel.schedule(NOOP, now + delay);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        wheel.close();
+    }
+
+    @Benchmark
+    public boolean executorScheduleAndCancel() {
+        ScheduledFuture<?> future = executor.schedule(NOOP, Duration.ofHours(1).toMillis() + randomDelay(), TimeUnit.MILLISECONDS);
+        return future.cancel(false);
+    }
+
+    @Benchmark
+    public boolean wheelScheduleAndCancel() {
+        TimingWheel.Timeout timeout = wheel.schedule(NOOP, System.currentTimeMillis() + Duration.ofHours(1).toMillis() + randomDelay());
+        return timeout.cancel();
+    }
+
+    private static long randomDelay() {
+        return ThreadLocalRandom.current().nextLong(WEEK_MILLIS);
+    }
+}
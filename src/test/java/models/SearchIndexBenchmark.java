@@ -0,0 +1,47 @@
+package models;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Поиск клиента по части имени, города или телефона в индексе подстрок на 100 тысяч клиентов
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchIndexBenchmark {
+
+    private static final String[] SURNAMES = {"Иванов", "Петров", "Сидоров", "Кузнецов", "Смирнов", "Попов",
+            "Васильев", "Соколов", "Михайлов", "Новиков", "Федоров", "Морозов", "Волков", "Алексеев", "Лебедев"};
+    private static final String[] FIRST_NAMES = {"Александр", "Дмитрий", "Максим", "Сергей", "Андрей", "Алексей",
+            "Анна", "Мария", "Елена", "Ольга", "Наталья", "Татьяна"};
+    private static final String[] CITIES = {"Москва", "Санкт-Петербург", "Казань", "Екатеринбург", "Новосибирск",
+            "Нижний Новгород", "Самара", "Краснодар"};
+
+    @Param({"100000"})
+    private int clients;
+
+    // Фамилия целиком, частый фрагмент фамилии, последние цифры телефона, город
+    @Param({"Кузнецов", "ова", "4567", "Казань"})
+    private String query;
+
+    private SearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        index = new SearchIndex();
+        for (int i = 0; i < clients; i++) {
+            String surname = SURNAMES[i % SURNAMES.length] + (i % 2 == 0 ? "" : "а");
+            String name = surname + " " + FIRST_NAMES[(i / SURNAMES.length) % FIRST_NAMES.length];
+            index.put(i + 1, name, CITIES[(i / 7) % CITIES.length], BenchmarkBot.phone(i * 7919 % 10_000_000));
+        }
+    }
+
+    @Benchmark
+    public List<SearchIndex.Match> search() {
+        return index.search(query, 8);
+    }
+}